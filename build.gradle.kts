@@ -2,6 +2,7 @@ plugins {
     id("java")
     id("org.jetbrains.kotlin.jvm") version "2.1.0"
     id("org.jetbrains.intellij.platform") version "2.7.1"
+    id("me.champeau.jmh") version "0.7.3"
 }
 
 group = "com.nju"
@@ -23,6 +24,7 @@ dependencies {
     intellijPlatform {
         create("IC", "2025.1.4.1")
         testFramework(org.jetbrains.intellij.platform.gradle.TestFrameworkType.Platform)
+        testFramework(org.jetbrains.intellij.platform.gradle.TestFrameworkType.Plugin.Java)
 
         // Add necessary plugin dependencies for compilation here, example:
         bundledPlugin("com.intellij.java")
@@ -33,10 +35,14 @@ dependencies {
     compileOnly("org.projectlombok:lombok:1.18.30")
     annotationProcessor("org.projectlombok:lombok:1.18.30")
 
+    testImplementation("junit:junit:4.13.2")
     testCompileOnly("org.projectlombok:lombok:1.18.30")
     testAnnotationProcessor("org.projectlombok:lombok:1.18.30")
 
     runtimeOnly("org.slf4j:slf4j-simple:2.0.7")
+
+    // JMH benchmarks reuse the main compile classpath (including IntelliJ Platform jars)
+    jmhImplementation(files(sourceSets.main.map { it.compileClasspath }))
 }
 
 intellijPlatform {
@@ -57,6 +63,28 @@ tasks {
         sourceCompatibility = "21"
         targetCompatibility = "21"
     }
+
+    // Headless refresh benchmarks under com.nju.comment.benchmark only run with -Pbenchmark
+    test {
+        if (providers.gradleProperty("benchmark").isPresent) {
+            filter.includeTestsMatching("com.nju.comment.benchmark.*")
+            maxHeapSize = "6g"
+            systemProperty("benchmark.resultsDir", layout.buildDirectory.dir("reports/benchmark").get().asFile.path)
+        } else {
+            exclude("com/nju/comment/benchmark/**")
+        }
+    }
+}
+
+// Run benchmarks with ./gradlew jmh
+// Results are written as JSON to build/reports/jmh/results-<version>.json so releases can be diffed
+jmh {
+    jmhVersion = "1.37"
+    fork = 1
+    warmupIterations = 3
+    iterations = 5
+    resultFormat = "JSON"
+    resultsFile = layout.buildDirectory.file("reports/jmh/results-${project.version}.json")
 }
 
 kotlin {
@@ -0,0 +1,58 @@
+package com.nju.comment.benchmark;
+
+import java.util.Random;
+
+/**
+ * 基准测试使用的合成方法/注释文本，固定随机种子以保证结果可复现。
+ */
+public final class SyntheticSources {
+
+    private static final String[] STATEMENTS = {
+            "int value = input.length() * factor;",
+            "if (value > threshold) {",
+            "result.add(transform(value, \"key\"));",
+            "}",
+            "for (int i = 0; i < items.size(); i++) {",
+            "total += items.get(i).weight();",
+            "}",
+            "log.debug(\"processed {}\", total);",
+            "String name = prefix + \"-\" + suffix;",
+            "map.computeIfAbsent(name, k -> new ArrayList<>()).add(value);"
+    };
+
+    private SyntheticSources() {
+    }
+
+    /**
+     * 生成指定行数的方法文本，带有不规则缩进以模拟真实源码
+     */
+    public static String method(String name, int bodyLines, long seed) {
+        Random random = new Random(seed);
+        StringBuilder sb = new StringBuilder();
+        sb.append("public int ").append(name).append("(String input, List<Item> items) {\n");
+        for (int i = 0; i < bodyLines; i++) {
+            sb.append(" ".repeat(random.nextInt(12)))
+                    .append(STATEMENTS[random.nextInt(STATEMENTS.length)])
+                    .append('\n');
+        }
+        sb.append("    return total;\n");
+        sb.append("}");
+        return sb.toString();
+    }
+
+    /**
+     * 生成指定行数的 Javadoc 注释文本
+     */
+    public static String comment(int lines, long seed) {
+        Random random = new Random(seed);
+        StringBuilder sb = new StringBuilder("    /**\n");
+        for (int i = 0; i < lines; i++) {
+            sb.append(" ".repeat(4 + random.nextInt(4)))
+                    .append("* Describes step ").append(i).append(" of the computation.\n");
+        }
+        sb.append("     * @param input the input value\n");
+        sb.append("     * @return the computed total\n");
+        sb.append("     */");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,34 @@
+package com.nju.comment.client.global;
+
+import com.nju.comment.benchmark.SyntheticSources;
+import com.nju.comment.dto.MethodContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CommentGeneratorClient 内容指纹计算基准：每次生成请求都会计算一次。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ContentFingerprintBenchmark {
+
+    @Param({"20", "200", "400"})
+    public int lines;
+
+    private MethodContext context;
+
+    @Setup
+    public void setup() {
+        context = new MethodContext(
+                SyntheticSources.method("compute", lines, 1L),
+                SyntheticSources.comment(5, 1L),
+                SyntheticSources.method("compute", lines, 2L));
+    }
+
+    @Benchmark
+    public String contentFingerprint() {
+        return CommentGeneratorClient.contentFingerprint(context);
+    }
+}
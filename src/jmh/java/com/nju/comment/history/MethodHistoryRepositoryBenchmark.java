@@ -0,0 +1,64 @@
+package com.nju.comment.history;
+
+import com.nju.comment.dto.MethodRecord;
+import com.nju.comment.dto.MethodStatus;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MethodHistoryRepositoryImpl 读写基准，覆盖 1 万到 100 万条记录的规模。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MethodHistoryRepositoryBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int records;
+
+    private final MethodHistoryRepositoryImpl repository = MethodHistoryRepositoryImpl.getInstance();
+
+    private String[] keys;
+    private MethodRecord[] samples;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        keys = new String[records];
+        samples = new MethodRecord[records];
+        for (int i = 0; i < records; i++) {
+            MethodRecord record = new MethodRecord("com.example.pkg" + (i % 500) + ".Type" + (i % 5000),
+                    "method" + i + "(java.lang.String,int)", "int method" + i + "() { return " + i + "; }", "");
+            record.setStagedMethod(record.getOldMethod());
+            record.setStatus(MethodStatus.UNCHANGED);
+            repository.save(record);
+            keys[i] = record.getKey();
+            samples[i] = record;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (String key : keys) {
+            repository.deleteByKey(key);
+        }
+    }
+
+    @Benchmark
+    public MethodRecord findByKey() {
+        return repository.findByKey(keys[ThreadLocalRandom.current().nextInt(records)]);
+    }
+
+    @Benchmark
+    public void save() {
+        repository.save(samples[ThreadLocalRandom.current().nextInt(records)]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<MethodRecord> findAll() {
+        return repository.findAll();
+    }
+}
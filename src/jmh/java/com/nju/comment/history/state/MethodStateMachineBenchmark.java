@@ -0,0 +1,79 @@
+package com.nju.comment.history.state;
+
+import com.nju.comment.benchmark.SyntheticSources;
+import com.nju.comment.dto.MethodRecord;
+import com.nju.comment.dto.MethodStatus;
+import com.nju.comment.util.TextProcessUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MethodStateMachine 状态评估基准，不依赖 PSI。
+ * <p>
+ * 每次调用都会复制一份历史记录并构建新的上下文，与 MethodHistoryManager 中的实际调用路径一致，
+ * 避免状态处理器修改记录后影响下一次评估。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MethodStateMachineBenchmark {
+
+    private static final String QUALIFIED_NAME = "com.example.service.OrderService";
+    private static final String SIGNATURE = "compute(java.lang.String,java.util.List<Item>)";
+
+    @Param({"NEW_METHOD", "UNCHANGED", "METHOD_CHANGED", "COMMENT_CHANGED"})
+    public String scenario;
+
+    @Param({"20", "200"})
+    public int lines;
+
+    private final MethodStateMachine stateMachine = new MethodStateMachine();
+
+    private String oldMethod;
+    private String oldComment;
+    private String currentMethod;
+    private String currentComment;
+    private boolean hasRecord;
+
+    @Setup
+    public void setup() {
+        oldMethod = TextProcessUtil.processMethod(SyntheticSources.method("compute", lines, 1L));
+        oldComment = TextProcessUtil.processComment(SyntheticSources.comment(3, 1L));
+        hasRecord = true;
+
+        switch (scenario) {
+            case "NEW_METHOD" -> {
+                hasRecord = false;
+                currentMethod = oldMethod;
+                currentComment = "";
+            }
+            case "UNCHANGED" -> {
+                currentMethod = oldMethod;
+                currentComment = oldComment;
+            }
+            case "METHOD_CHANGED" -> {
+                currentMethod = TextProcessUtil.processMethod(SyntheticSources.method("compute", lines, 2L));
+                currentComment = oldComment;
+            }
+            case "COMMENT_CHANGED" -> {
+                currentMethod = oldMethod;
+                currentComment = TextProcessUtil.processComment(SyntheticSources.comment(4, 2L));
+            }
+            default -> throw new IllegalArgumentException("Unknown scenario: " + scenario);
+        }
+    }
+
+    @Benchmark
+    public MethodStateResult evaluate() {
+        MethodRecord record = null;
+        if (hasRecord) {
+            record = new MethodRecord(QUALIFIED_NAME, SIGNATURE, oldMethod, oldComment);
+            record.setStagedMethod(oldMethod);
+            record.setStatus(MethodStatus.UNCHANGED);
+        }
+        MethodStateContext context = new MethodStateContext(null, record, currentMethod, currentComment,
+                "/project/src/com/example/service/OrderService.java", QUALIFIED_NAME, SIGNATURE);
+        return stateMachine.evaluate(context);
+    }
+}
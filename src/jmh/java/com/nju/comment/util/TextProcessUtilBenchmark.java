@@ -0,0 +1,37 @@
+package com.nju.comment.util;
+
+import com.nju.comment.benchmark.SyntheticSources;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TextProcessUtil 文本预处理基准：每次刷新对每个方法都会执行。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TextProcessUtilBenchmark {
+
+    @Param({"10", "100", "400"})
+    public int lines;
+
+    private String method;
+    private String comment;
+
+    @Setup
+    public void setup() {
+        method = SyntheticSources.method("compute", lines, 42L);
+        comment = SyntheticSources.comment(Math.max(1, lines / 10), 42L);
+    }
+
+    @Benchmark
+    public String processMethod() {
+        return TextProcessUtil.processMethod(method);
+    }
+
+    @Benchmark
+    public String processComment() {
+        return TextProcessUtil.processComment(comment);
+    }
+}
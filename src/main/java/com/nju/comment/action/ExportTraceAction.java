@@ -0,0 +1,59 @@
+package com.nju.comment.action;
+
+import com.intellij.openapi.actionSystem.ActionUpdateThread;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.fileChooser.FileChooserFactory;
+import com.intellij.openapi.fileChooser.FileSaverDescriptor;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.vfs.VirtualFileWrapper;
+import com.nju.comment.trace.TraceRecorder;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * 将已记录的追踪区间导出为 Chrome / Perfetto trace-event JSON
+ */
+@Slf4j
+public class ExportTraceAction extends AnAction {
+
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent e) {
+        Project project = e.getProject();
+        if (project == null) {
+            return;
+        }
+
+        FileSaverDescriptor descriptor = new FileSaverDescriptor("Export Trace",
+                "Export comment pipeline trace (open in chrome://tracing or ui.perfetto.dev)", "json");
+        VirtualFileWrapper target = FileChooserFactory.getInstance()
+                .createSaveFileDialog(descriptor, project)
+                .save("comment-consistency-trace.json");
+        if (target == null) {
+            return;
+        }
+
+        try {
+            Files.writeString(target.getFile().toPath(), TraceRecorder.getInstance().toChromeTraceJson(), StandardCharsets.UTF_8);
+            log.info("追踪已导出：{}", target.getFile());
+        } catch (IOException ex) {
+            log.error("追踪导出失败", ex);
+            Messages.showErrorDialog(project, ex.getMessage(), "Export Trace");
+        }
+    }
+
+    @Override
+    public @NotNull ActionUpdateThread getActionUpdateThread() {
+        return ActionUpdateThread.BGT;
+    }
+
+    @Override
+    public void update(@NotNull AnActionEvent e) {
+        e.getPresentation().setEnabledAndVisible(e.getProject() != null);
+    }
+}
@@ -0,0 +1,26 @@
+package com.nju.comment.client;
+
+import lombok.Getter;
+
+import java.io.IOException;
+
+/**
+ * 后端返回了表示暂时不可用的 HTTP 状态码（5xx 或 429）
+ */
+@Getter
+public class BackendHttpException extends IOException {
+
+    private final int statusCode;
+
+    public BackendHttpException(String path, int statusCode) {
+        super("后端返回 HTTP " + statusCode + ": " + path);
+        this.statusCode = statusCode;
+    }
+
+    /**
+     * 是否值得重试：服务端错误与限流均视为暂时性故障
+     */
+    public boolean isRetryable() {
+        return statusCode == 429 || statusCode >= 500;
+    }
+}
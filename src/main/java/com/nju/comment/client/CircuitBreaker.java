@@ -0,0 +1,137 @@
+package com.nju.comment.client;
+
+import com.nju.comment.metrics.PluginMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * 后端熔断器。
+ * <p>
+ * CLOSED：正常放行，连续失败达到阈值后进入 OPEN；
+ * OPEN：直接拒绝请求，不占用信号量与线程，冷却时间过后进入 HALF_OPEN；
+ * HALF_OPEN：只放行一个探测请求，成功则恢复 CLOSED，失败则重新 OPEN 并重新计时。
+ */
+@Slf4j
+public final class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier nanoClock;
+
+    private volatile State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+
+    public CircuitBreaker(int failureThreshold, Duration openDuration) {
+        this(failureThreshold, openDuration, System::nanoTime);
+    }
+
+    CircuitBreaker(int failureThreshold, Duration openDuration, LongSupplier nanoClock) {
+        if (failureThreshold <= 0) {
+            throw new IllegalArgumentException("failureThreshold 必须为正数");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * 当前是否可能放行请求，不改变状态：负载均衡据此跳过仍在冷却的实例，冷却结束的实例仍可被选中去探测
+     */
+    public synchronized boolean isAvailable() {
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> nanoClock.getAsLong() - openedAt >= openNanos;
+            case HALF_OPEN -> !probeInFlight;
+        };
+    }
+
+    /**
+     * 申请发送一个请求
+     *
+     * @return 是否放行；放行后必须以 onSuccess/onFailure/onIgnored 之一结束
+     */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED -> {
+                return true;
+            }
+            case OPEN -> {
+                if (nanoClock.getAsLong() - openedAt < openNanos) {
+                    return false;
+                }
+                transitionTo(State.HALF_OPEN);
+                probeInFlight = true;
+                return true;
+            }
+            default -> {
+                if (probeInFlight) {
+                    return false;
+                }
+                probeInFlight = true;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 后端正常响应
+     */
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        if (state == State.HALF_OPEN) {
+            probeInFlight = false;
+            transitionTo(State.CLOSED);
+        }
+    }
+
+    /**
+     * 后端不可用（连接失败、超时、5xx 等）
+     */
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            probeInFlight = false;
+            open();
+            return;
+        }
+        if (state == State.CLOSED && ++consecutiveFailures >= failureThreshold) {
+            open();
+        }
+    }
+
+    /**
+     * 请求未能反映后端状态（如本地并发受限而未发出），只释放探测名额
+     */
+    public synchronized void onIgnored() {
+        if (state == State.HALF_OPEN) {
+            probeInFlight = false;
+        }
+    }
+
+    private void open() {
+        openedAt = nanoClock.getAsLong();
+        consecutiveFailures = 0;
+        transitionTo(State.OPEN);
+    }
+
+    private void transitionTo(State next) {
+        if (state != next) {
+            log.info("后端熔断器状态变更: {} -> {}", state, next);
+            state = next;
+            if (next == State.OPEN) {
+                PluginMetrics.getInstance().increment(PluginMetrics.CIRCUIT_OPENED);
+            }
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.nju.comment.client;
+
+/**
+ * 熔断器处于打开状态，请求未发出即被拒绝
+ */
+public class CircuitOpenException extends RuntimeException {
+
+    public CircuitOpenException(String path) {
+        super("后端熔断中，拒绝请求: " + path);
+    }
+}
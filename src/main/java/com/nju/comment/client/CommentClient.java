@@ -14,5 +14,7 @@ public interface CommentClient {
 
     CompletableFuture<List<String>> getAvailableModels();
 
+    CircuitBreaker.State getCircuitState();
+
     void shutdown();
 }
@@ -0,0 +1,71 @@
+package com.nju.comment.client;
+
+import com.nju.comment.constant.Constant;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 一个后端实例及其客户端侧负载统计：在途生成请求数与生成延迟的指数加权移动平均（EWMA）。
+ * 每个实例有独立的熔断器，单个实例不可用时不影响发往其他实例的请求。
+ */
+public final class Endpoint {
+
+    @Getter
+    private final String baseUrl;
+    @Getter
+    private final CircuitBreaker circuitBreaker;
+    private final double alpha;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private volatile double latencyEwmaMillis;
+
+    public Endpoint(String baseUrl, double alpha) {
+        this(baseUrl, alpha, new CircuitBreaker(Constant.CIRCUIT_FAILURE_THRESHOLD,
+                Duration.ofMillis(Constant.CIRCUIT_OPEN_DURATION_MS)));
+    }
+
+    public Endpoint(String baseUrl, double alpha, CircuitBreaker circuitBreaker) {
+        this.baseUrl = baseUrl;
+        this.alpha = alpha;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    public double getLatencyEwmaMillis() {
+        return latencyEwmaMillis;
+    }
+
+    /**
+     * 发出一个生成请求
+     */
+    void begin() {
+        outstanding.incrementAndGet();
+    }
+
+    /**
+     * 生成请求结束，记录本次耗时样本
+     */
+    void end(double latencyMillis) {
+        outstanding.decrementAndGet();
+        synchronized (this) {
+            double current = latencyEwmaMillis;
+            latencyEwmaMillis = current == 0D ? latencyMillis : current + alpha * (latencyMillis - current);
+        }
+    }
+
+    /**
+     * 生成请求未发出即结束（如本地熔断或并发受限），只减少在途数，不记录耗时样本
+     */
+    void abandon() {
+        outstanding.decrementAndGet();
+    }
+
+    @Override
+    public String toString() {
+        return baseUrl;
+    }
+}
@@ -0,0 +1,99 @@
+package com.nju.comment.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * 客户端侧负载均衡：在多个同构后端实例之间选择本次请求的目标。
+ */
+public final class LoadBalancer {
+
+    public enum Strategy {
+        /**
+         * 选择在途请求最少的实例
+         */
+        LEAST_OUTSTANDING,
+        /**
+         * 随机取两个实例，选择 延迟EWMA × (在途数 + 1) 较小者
+         */
+        P2C_EWMA
+    }
+
+    private final List<Endpoint> endpoints;
+    private final Strategy strategy;
+    private final Supplier<? extends Random> randomSource;
+
+    public LoadBalancer(List<Endpoint> endpoints, Strategy strategy) {
+        this(endpoints, strategy, ThreadLocalRandom::current);
+    }
+
+    LoadBalancer(List<Endpoint> endpoints, Strategy strategy, Supplier<? extends Random> randomSource) {
+        if (endpoints.isEmpty()) {
+            throw new IllegalArgumentException("至少需要一个后端实例");
+        }
+        this.endpoints = List.copyOf(endpoints);
+        this.strategy = strategy;
+        this.randomSource = randomSource;
+    }
+
+    public List<Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    public Endpoint select() {
+        return select(null);
+    }
+
+    /**
+     * 选择一个实例，跳过熔断器仍在冷却的实例；所有实例都不可用时仍按策略选出一个，由其熔断器快速失败
+     *
+     * @param exclude 需要避开的实例（如对冲请求避开主请求所在实例），只有一个实例时忽略
+     */
+    public Endpoint select(Endpoint exclude) {
+        if (endpoints.size() == 1) {
+            return endpoints.getFirst();
+        }
+        List<Endpoint> candidates = candidates(exclude, true);
+        if (candidates.isEmpty()) {
+            candidates = candidates(exclude, false);
+        }
+        int size = candidates.size();
+        Random random = randomSource.get();
+        if (strategy == Strategy.P2C_EWMA) {
+            Endpoint a = candidates.get(random.nextInt(size));
+            Endpoint b = candidates.get(random.nextInt(size));
+            if (a == b) {
+                return a;
+            }
+            return score(a) <= score(b) ? a : b;
+        }
+
+        // 从随机位置开始遍历，在途数相同时避免总是选中第一个实例
+        int offset = random.nextInt(size);
+        Endpoint best = null;
+        for (int i = 0; i < size; i++) {
+            Endpoint candidate = candidates.get((offset + i) % size);
+            if (best == null || candidate.getOutstanding() < best.getOutstanding()) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    private List<Endpoint> candidates(Endpoint exclude, boolean availableOnly) {
+        List<Endpoint> candidates = new ArrayList<>(endpoints.size());
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint != exclude && (!availableOnly || endpoint.getCircuitBreaker().isAvailable())) {
+                candidates.add(endpoint);
+            }
+        }
+        return candidates;
+    }
+
+    private static double score(Endpoint endpoint) {
+        return (endpoint.getLatencyEwmaMillis() + 1D) * (endpoint.getOutstanding() + 1);
+    }
+}
@@ -0,0 +1,209 @@
+package com.nju.comment.client;
+
+import com.nju.comment.constant.Constant;
+import com.nju.comment.metrics.PluginMetrics;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 按近期延迟自动选择模型，进程内单例。
+ * <p>
+ * 每个模型保留最近若干次生成的耗时样本，失败按一次请求超时计入，p90 越低越优先。
+ * 交互式请求（用户在编辑器里对单个方法触发）与后台请求（自动更新、全量扫描）可配置不同的策略：
+ * 默认交互式选 p90 最低的模型，后台请求按 1/p90 加权随机分散，把最快的模型留给交互式请求。
+ * 样本不足的模型由后台请求优先探测，已预热后后台请求仍以小概率随机探测，以便发现恢复变快的模型。
+ */
+@Slf4j
+public final class ModelRouter {
+
+    /**
+     * 模型下拉框中的自动选择项
+     */
+    public static final String AUTO = "Auto (lowest latency)";
+
+    public enum Policy {
+        /**
+         * 选择近期 p90 最低的模型
+         */
+        FASTEST_P90,
+        /**
+         * 按 1/p90 加权随机选择
+         */
+        SPREAD
+    }
+
+    private final Map<String, ModelStats> stats = new ConcurrentHashMap<>();
+
+    @Getter
+    @Setter
+    private volatile Policy interactivePolicy = Policy.FASTEST_P90;
+    @Getter
+    @Setter
+    private volatile Policy backgroundPolicy = Policy.SPREAD;
+
+    private ModelRouter() {
+    }
+
+    public static ModelRouter getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    private static class Holder {
+        private static final ModelRouter INSTANCE = new ModelRouter();
+    }
+
+    public static boolean isAuto(String modelName) {
+        return AUTO.equals(modelName);
+    }
+
+    /**
+     * 从候选模型中选择本次请求使用的模型
+     *
+     * @param candidates  候选模型，即后端 /comments/models 返回的列表
+     * @param interactive 是否为交互式请求
+     * @return 选中的模型，无候选时为 null
+     */
+    public String route(List<String> candidates, boolean interactive) {
+        if (candidates == null || candidates.isEmpty()) {
+            return null;
+        }
+        String chosen = interactive ? routeInteractive(candidates) : routeBackground(candidates);
+        PluginMetrics.getInstance().increment(PluginMetrics.tagged(PluginMetrics.ROUTER_ROUTED, chosen));
+        log.debug("自动选择模型: {}, interactive={}", chosen, interactive);
+        return chosen;
+    }
+
+    private String routeInteractive(List<String> candidates) {
+        List<String> warmed = candidates.stream().filter(this::isWarmed).toList();
+        if (warmed.isEmpty()) {
+            return leastSampled(candidates);
+        }
+        return select(warmed, interactivePolicy);
+    }
+
+    private String routeBackground(List<String> candidates) {
+        if (!candidates.stream().allMatch(this::isWarmed)) {
+            return leastSampled(candidates);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextDouble() < Constant.MODEL_ROUTER_EXPLORE_RATE) {
+            return candidates.get(random.nextInt(candidates.size()));
+        }
+        return select(candidates, backgroundPolicy);
+    }
+
+    private String select(List<String> candidates, Policy policy) {
+        if (policy == Policy.FASTEST_P90) {
+            String best = null;
+            double bestP90 = Double.MAX_VALUE;
+            for (String model : candidates) {
+                double p90 = p90Millis(model);
+                if (p90 < bestP90) {
+                    best = model;
+                    bestP90 = p90;
+                }
+            }
+            return best;
+        }
+
+        double[] weights = new double[candidates.size()];
+        double total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = 1D / (p90Millis(candidates.get(i)) + 1D);
+            total += weights[i];
+        }
+        double pick = ThreadLocalRandom.current().nextDouble(total);
+        for (int i = 0; i < weights.length; i++) {
+            pick -= weights[i];
+            if (pick < 0) {
+                return candidates.get(i);
+            }
+        }
+        return candidates.getLast();
+    }
+
+    private String leastSampled(List<String> candidates) {
+        String best = candidates.getFirst();
+        for (String model : candidates) {
+            if (stats(model).size() < stats(best).size()) {
+                best = model;
+            }
+        }
+        return best;
+    }
+
+    private boolean isWarmed(String model) {
+        return stats(model).size() >= Constant.MODEL_ROUTER_MIN_SAMPLES;
+    }
+
+    /**
+     * 记录一次成功生成的耗时
+     */
+    public void recordSuccess(String model, long nanos) {
+        stats(model).add(nanos / 1_000_000L);
+    }
+
+    /**
+     * 记录一次失败，按一次请求超时计入样本
+     */
+    public void recordFailure(String model) {
+        stats(model).add(Constant.CLIENT_REQUEST_TIMEOUT_S * 1000L);
+    }
+
+    /**
+     * 模型近期 p90 延迟（毫秒），无样本时为 0
+     */
+    public double p90Millis(String model) {
+        return stats(model).percentile(0.90);
+    }
+
+    private ModelStats stats(String model) {
+        return stats.computeIfAbsent(model, k -> {
+            ModelStats created = new ModelStats(Constant.MODEL_ROUTER_WINDOW);
+            PluginMetrics.getInstance().registerGauge(PluginMetrics.tagged(PluginMetrics.ROUTER_P90, k),
+                    () -> Math.round(created.percentile(0.90)));
+            return created;
+        });
+    }
+
+    /**
+     * 固定容量的耗时样本环形缓冲
+     */
+    private static final class ModelStats {
+
+        private final long[] samples;
+        private int next;
+        private int size;
+
+        private ModelStats(int capacity) {
+            this.samples = new long[capacity];
+        }
+
+        private synchronized void add(long millis) {
+            samples[next] = millis;
+            next = (next + 1) % samples.length;
+            size = Math.min(size + 1, samples.length);
+        }
+
+        private synchronized int size() {
+            return size;
+        }
+
+        private synchronized double percentile(double quantile) {
+            if (size == 0) {
+                return 0D;
+            }
+            long[] sorted = Arrays.copyOf(samples, size);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(quantile * size) - 1;
+            return sorted[Math.max(0, Math.min(size - 1, index))];
+        }
+    }
+}
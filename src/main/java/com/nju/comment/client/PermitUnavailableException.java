@@ -0,0 +1,13 @@
+package com.nju.comment.client;
+
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 等待并发许可超时，请求未发出即被拒绝
+ */
+public class PermitUnavailableException extends TimeoutException {
+
+    public PermitUnavailableException(String path) {
+        super("Timeout acquiring semaphore for request: " + path);
+    }
+}
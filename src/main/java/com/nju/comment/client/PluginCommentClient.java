@@ -1,36 +1,92 @@
 package com.nju.comment.client;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.nju.comment.constant.Constant;
 import com.nju.comment.dto.request.CommentRequest;
 import com.nju.comment.dto.response.CommentResponse;
+import com.nju.comment.metrics.WindowedLatencyHistogram;
+import com.nju.comment.metrics.PluginMetrics;
+import com.nju.comment.trace.TraceContext;
+import com.nju.comment.trace.TraceRecorder;
+import com.nju.comment.util.UnifiedDiffUtil;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 @Slf4j
 public class PluginCommentClient implements CommentClient {
 
-    private final String baseUrl;
+    /**
+     * 后端声明可接收 Content-Encoding: gzip 请求体的能力名
+     */
+    public static final String CAPABILITY_GZIP_REQUEST = "gzip-request";
+
+    /**
+     * 后端声明支持 /comments/cancel/batch 批量取消的能力名
+     */
+    public static final String CAPABILITY_CANCEL_BATCH = "cancel-batch";
+
+    private static final String GZIP = "gzip";
+
+    private static final DataDecoder<Object> CANCEL_DECODER = parser -> {
+        parser.skipChildren();
+        return null;
+    };
+
+    private final LoadBalancer loadBalancer;
     private final HttpClient httpClient;
     private final ObjectMapper objectMapper;
     private final ExecutorService executor;
     private final Semaphore concurrentLimiter;
     private final Duration requestTimeout;
+    private final int gzipMinBytes;
+    private final int maxAttempts;
+    private final long retryBaseDelayMs;
+    private final long retryMaxDelayMs;
+    private final RetryBudget retryBudget;
+    private final boolean hedgingEnabled;
+
+    // 近期单次生成往返的延迟分布，用于计算对冲触发时机
+    private final WindowedLatencyHistogram generateLatency = new WindowedLatencyHistogram(Constant.HEDGE_LATENCY_WINDOW_MS);
+    // 生成请求当前所在的后端实例，取消时只通知这些实例
+    private final Map<String, Set<Endpoint>> endpointsByRequest = new ConcurrentHashMap<>();
+    // 每个实例在当前合并窗口内待发送的取消请求
+    private final Map<Endpoint, Set<String>> pendingCancels = new ConcurrentHashMap<>();
+
+    // 后端在 /comments/models 响应中声明的能力，未获取前视为不支持任何可选能力
+    private volatile Set<String> serverCapabilities = Set.of();
 
     private PluginCommentClient(Builder builder) {
-        this.baseUrl = Objects.requireNonNull(builder.baseUrl, "url required");
+        Objects.requireNonNull(builder.baseUrls, "url required");
+        this.loadBalancer = new LoadBalancer(builder.baseUrls.stream()
+                .map(url -> new Endpoint(url, Constant.LB_LATENCY_EWMA_ALPHA,
+                        new CircuitBreaker(builder.circuitFailureThreshold, builder.circuitOpenDuration)))
+                .toList(), builder.loadBalancing);
+        this.hedgingEnabled = builder.hedging;
         this.executor = Executors.newFixedThreadPool(Math.max(5, builder.threadPoolSize),
                 r -> {
                     Thread t = new Thread(r);
@@ -47,78 +103,517 @@ public class PluginCommentClient implements CommentClient {
         this.objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
         this.concurrentLimiter = new Semaphore(builder.maxConcurrentRequests);
         this.requestTimeout = builder.requestTimeout;
+        this.gzipMinBytes = builder.gzipMinBytes;
+        this.maxAttempts = Math.max(1, builder.maxAttempts);
+        this.retryBaseDelayMs = builder.retryBaseDelayMs;
+        this.retryMaxDelayMs = builder.retryMaxDelayMs;
+        this.retryBudget = builder.retryBudget != null
+                ? builder.retryBudget
+                : new RetryBudget(Constant.RETRY_BUDGET_MAX_TOKENS, Constant.RETRY_BUDGET_TOKEN_RATIO);
+        int maxConcurrentRequests = builder.maxConcurrentRequests;
+        PluginMetrics.getInstance().registerGauge(PluginMetrics.QUEUE_HTTP_PERMITS_IN_USE,
+                () -> maxConcurrentRequests - concurrentLimiter.availablePermits());
+        PluginMetrics.getInstance().registerGauge(PluginMetrics.RETRY_BUDGET_TOKENS,
+                () -> (long) retryBudget.getTokens());
+        PluginMetrics.getInstance().registerGauge(PluginMetrics.CIRCUIT_STATE,
+                () -> getCircuitState().ordinal());
+        for (Endpoint endpoint : loadBalancer.getEndpoints()) {
+            PluginMetrics.getInstance().registerGauge(
+                    PluginMetrics.tagged(PluginMetrics.CIRCUIT_STATE, endpoint.getBaseUrl()),
+                    () -> endpoint.getCircuitBreaker().getState().ordinal());
+            PluginMetrics.getInstance().registerGauge(
+                    PluginMetrics.tagged(PluginMetrics.ENDPOINT_OUTSTANDING, endpoint.getBaseUrl()),
+                    endpoint::getOutstanding);
+            PluginMetrics.getInstance().registerGauge(
+                    PluginMetrics.tagged(PluginMetrics.ENDPOINT_LATENCY_EWMA, endpoint.getBaseUrl()),
+                    () -> Math.round(endpoint.getLatencyEwmaMillis()));
+        }
     }
 
-    private <T> CompletableFuture<T> sendJson(String path, String method, String jsonBody, FunctionWithIOException<JsonNode, T> mapperFn) {
+    private <T> CompletableFuture<Envelope<T>> sendJson(Endpoint endpoint, String path, String method, byte[] jsonBody,
+                                                        DataDecoder<T> dataDecoder) {
+        TraceRecorder tracer = TraceRecorder.getInstance();
+        // 目标实例熔断打开时直接失败，不占用信号量与线程；负载均衡只在所有实例都熔断时才会选中这样的实例
+        CircuitBreaker circuitBreaker = endpoint.getCircuitBreaker();
+        if (!circuitBreaker.tryAcquire()) {
+            PluginMetrics.getInstance().increment(PluginMetrics.CIRCUIT_REJECTED);
+            CompletableFuture<Envelope<T>> f = new CompletableFuture<>();
+            f.completeExceptionally(new CircuitOpenException(path));
+            return f;
+        }
         boolean acquired;
-        try {
+        try (TraceRecorder.ActiveSpan span = tracer.span("acquirePermit", "http")) {
             acquired = concurrentLimiter.tryAcquire(requestTimeout.toMillis(), TimeUnit.MILLISECONDS);
         } catch (InterruptedException e) {
             log.error("请求被中断: {}", path, e);
-            CompletableFuture<T> f = new CompletableFuture<>();
+            circuitBreaker.onIgnored();
+            CompletableFuture<Envelope<T>> f = new CompletableFuture<>();
             f.completeExceptionally(e);
             return f;
         }
         if (!acquired) {
             log.info("请求并发数达到上限，拒绝请求: {}", path);
-            CompletableFuture<T> f = new CompletableFuture<>();
-            f.completeExceptionally(new TimeoutException("Timeout acquiring semaphore for request"));
+            circuitBreaker.onIgnored();
+            CompletableFuture<Envelope<T>> f = new CompletableFuture<>();
+            f.completeExceptionally(new PermitUnavailableException(path));
             return f;
         }
 
+        return exchange(endpoint, path, method, jsonBody, requestTimeout, dataDecoder)
+                .whenComplete((res, ex) -> {
+                    concurrentLimiter.release();
+                    Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                    if (isRateLimited(cause)) {
+                        circuitBreaker.onIgnored();
+                    } else if (cause != null && isBackendFailure(cause)) {
+                        circuitBreaker.onFailure();
+                    } else {
+                        circuitBreaker.onSuccess();
+                    }
+                });
+    }
+
+    /**
+     * 执行一次 HTTP 往返并解析响应信封，不经过熔断器与并发信号量
+     */
+    private <T> CompletableFuture<Envelope<T>> exchange(Endpoint endpoint, String path, String method, byte[] jsonBody,
+                                                        Duration timeout, DataDecoder<T> dataDecoder) {
+        TraceContext trace = TraceContext.current();
+        TraceRecorder tracer = TraceRecorder.getInstance();
         HttpRequest.Builder reqBuilder = HttpRequest.newBuilder()
-                .uri(URI.create(baseUrl + path))
-                .timeout(requestTimeout)
-                .header("Content-Type", "application/json");
+                .uri(URI.create(endpoint.getBaseUrl() + path))
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .header("Accept-Encoding", GZIP);
 
         if ("POST".equalsIgnoreCase(method)) {
-            reqBuilder.POST(HttpRequest.BodyPublishers.ofString(jsonBody == null ? "" : jsonBody));
+            byte[] gzipBody = maybeGzip(jsonBody);
+            if (gzipBody != null) {
+                reqBuilder.header("Content-Encoding", GZIP);
+            }
+            byte[] wireBody = gzipBody != null ? gzipBody : jsonBody;
+            reqBuilder.POST(wireBody == null
+                    ? HttpRequest.BodyPublishers.noBody()
+                    : HttpRequest.BodyPublishers.ofByteArray(wireBody));
         } else {
             reqBuilder.GET();
         }
 
         HttpRequest request = reqBuilder.build();
+        long sendMicros = TraceRecorder.nowMicros();
 
-        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
-                .orTimeout(requestTimeout.toMillis(), TimeUnit.MILLISECONDS)
+        CompletableFuture<HttpResponse<InputStream>> sent =
+                httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream());
+        return sent
+                .whenComplete((res, ex) -> tracer.record(trace, "exchange " + path, "http", sendMicros))
                 .thenApplyAsync(response -> {
-                    int statusCode = response.statusCode();
-                    String body = response.body();
-                    log.info("statusCode: {}, body: \n{}", statusCode, body);
-                    try {
-                        JsonNode root = objectMapper.readTree(body);
-                        return mapperFn.apply(root);
+                    long decodeMicros = TraceRecorder.nowMicros();
+                    try (InputStream body = decodedBody(response)) {
+                        int status = response.statusCode();
+                        if (status == 429 || status >= 500) {
+                            throw new BackendHttpException(path, status);
+                        }
+                        return decodeEnvelope(response.statusCode(), body, dataDecoder);
+                    } catch (BackendHttpException e) {
+                        log.warn("后端暂时不可用: {}", e.getMessage());
+                        throw new CompletionException(e);
                     } catch (Exception e) {
                         log.error("response处理失败", e);
                         throw new CompletionException(e);
+                    } finally {
+                        tracer.record(trace, "decode " + path, "http", decodeMicros);
                     }
                 }, executor)
-                .whenComplete((res, ex) -> concurrentLimiter.release());
+                // 截止时间覆盖发送、等待响应头与读取解析响应体的全过程：HttpRequest.timeout 只约束到响应头为止，
+                // 响应体缓慢到达时解析会一直占用线程与并发许可
+                .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((res, ex) -> {
+                    if (ex instanceof TimeoutException) {
+                        abortExchange(sent);
+                    }
+                });
+    }
+
+    /**
+     * 超时后中止一次往返：尚未收到响应时取消发送；已收到响应时关闭响应流，阻塞中的解析随即以 IOException 结束
+     */
+    private static void abortExchange(CompletableFuture<HttpResponse<InputStream>> sent) {
+        sent.cancel(true);
+        sent.thenAccept(response -> {
+            try {
+                response.body().close();
+            } catch (IOException e) {
+                log.debug("关闭超时响应流失败", e);
+            }
+        });
+    }
+
+    /**
+     * 请求是否在本地被拒绝而未发出：熔断打开、等待并发许可超时或被中断
+     */
+    private static boolean isLocalRejection(Throwable t) {
+        return t instanceof CircuitOpenException || t instanceof PermitUnavailableException
+                || t instanceof InterruptedException;
+    }
+
+    /**
+     * 是否说明后端不可用：连接/IO 失败、后端 5xx、请求超时
+     */
+    private static boolean isBackendFailure(Throwable t) {
+        return t instanceof IOException || t instanceof TimeoutException;
+    }
+
+    /**
+     * 后端返回 429：实例存活只是暂时限流，不计入熔断失败
+     */
+    private static boolean isRateLimited(Throwable t) {
+        return t instanceof BackendHttpException e && e.getStatusCode() == 429;
+    }
+
+    /**
+     * 后端声明支持 gzip 请求体且请求体不小于阈值时返回压缩后的字节，否则返回 null 表示按原样发送。
+     * 小请求压缩收益低于 CPU 开销与 gzip 头部开销，因此设阈值跳过。
+     */
+    private byte[] maybeGzip(byte[] body) {
+        if (body == null || body.length < gzipMinBytes || !serverCapabilities.contains(CAPABILITY_GZIP_REQUEST)) {
+            return null;
+        }
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+            gzip.write(body);
+        } catch (IOException e) {
+            log.warn("请求体压缩失败，按原样发送", e);
+            return null;
+        }
+        byte[] compressed = buffer.toByteArray();
+        if (compressed.length >= body.length) {
+            return null;
+        }
+        PluginMetrics metrics = PluginMetrics.getInstance();
+        metrics.increment(PluginMetrics.PAYLOAD_GZIP_REQUESTS);
+        metrics.add(PluginMetrics.PAYLOAD_GZIP_BYTES_SAVED, body.length - compressed.length);
+        return compressed;
+    }
+
+    /**
+     * 按响应头 Content-Encoding 返回解压后的响应体流
+     */
+    private static InputStream decodedBody(HttpResponse<InputStream> response) throws IOException {
+        boolean gzipped = response.headers().firstValue("Content-Encoding")
+                .map(GZIP::equalsIgnoreCase)
+                .orElse(false);
+        if (!gzipped) {
+            return response.body();
+        }
+        PluginMetrics.getInstance().increment(PluginMetrics.PAYLOAD_GZIP_RESPONSES);
+        return new GZIPInputStream(response.body());
+    }
+
+    /**
+     * 以流式方式解析响应信封 {success, message, data}，data 直接反序列化为目标类型，不构建中间 JsonNode 树。
+     * 仅在 debug 级别下读出完整响应体用于日志。
+     */
+    private <T> Envelope<T> decodeEnvelope(int statusCode, InputStream body, DataDecoder<T> dataDecoder) throws IOException {
+        JsonParser parser;
+        if (log.isDebugEnabled()) {
+            byte[] bytes = body.readAllBytes();
+            log.debug("statusCode: {}, body: \n{}", statusCode, new String(bytes, StandardCharsets.UTF_8));
+            parser = objectMapper.createParser(bytes);
+        } else {
+            parser = objectMapper.createParser(body);
+        }
+
+        try (parser) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("响应不是 JSON 对象, statusCode=" + statusCode);
+            }
+            boolean success = false;
+            String message = null;
+            T data = null;
+            Set<String> capabilities = Set.of();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken valueToken = parser.nextToken();
+                switch (field) {
+                    case "success" -> success = valueToken == JsonToken.VALUE_TRUE;
+                    case "message" -> message = valueToken == JsonToken.VALUE_NULL ? null : parser.getValueAsString();
+                    case "data" -> data = valueToken == JsonToken.VALUE_NULL ? null : dataDecoder.decode(parser);
+                    case "capabilities" -> capabilities = readStringSet(parser, valueToken);
+                    default -> parser.skipChildren();
+                }
+            }
+            return new Envelope<>(success, message, data, capabilities);
+        }
     }
 
+    private static Set<String> readStringSet(JsonParser parser, JsonToken valueToken) throws IOException {
+        if (valueToken != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return Set.of();
+        }
+        Set<String> values = new HashSet<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            values.add(parser.getValueAsString());
+        }
+        return Set.copyOf(values);
+    }
+
+    /**
+     * 后端声明支持 diff 负载时，将 newMethod 替换为相对 oldMethod 的 unified diff；
+     * 差异过大或节省的字节不足阈值时保留全文。
+     */
+    private CommentRequest compactPayload(CommentRequest request) {
+        PluginMetrics metrics = PluginMetrics.getInstance();
+        String oldMethod = request.getOldMethod();
+        String newMethod = request.getNewMethod();
+        if (!serverCapabilities.contains(CommentRequest.FORMAT_UNIFIED_DIFF)
+                || request.getNewMethodFormat() != null
+                || oldMethod == null || oldMethod.isEmpty() || newMethod == null) {
+            metrics.increment(PluginMetrics.PAYLOAD_FULL_REQUESTS);
+            return request;
+        }
+
+        String diff = UnifiedDiffUtil.diff(oldMethod, newMethod, Constant.DIFF_MAX_LCS_CELLS);
+        long saved = diff == null ? 0 : utf8Length(newMethod) - utf8Length(diff);
+        if (saved < Constant.DIFF_MIN_SAVED_BYTES) {
+            metrics.increment(PluginMetrics.PAYLOAD_FULL_REQUESTS);
+            return request;
+        }
+
+        metrics.increment(PluginMetrics.PAYLOAD_DIFF_REQUESTS);
+        metrics.add(PluginMetrics.PAYLOAD_DIFF_BYTES_SAVED, saved);
+        return request.toBuilder()
+                .newMethod(diff)
+                .newMethodFormat(CommentRequest.FORMAT_UNIFIED_DIFF)
+                .build();
+    }
+
+    private static long utf8Length(String s) {
+        long length = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * 生成注释。遇到暂时性故障（5xx、429、连接失败）时按带抖动的指数退避重试，
+     * 重试沿用同一个 clientRequestId，后端据此保证幂等；重试次数同时受全局重试预算约束。
+     * 取消返回的 future 后不再发起后续重试。
+     */
     @Override
     public CompletableFuture<CommentResponse> generateComment(CommentRequest request) {
+        byte[] json;
         try {
-            String json = objectMapper.writeValueAsString(request);
-            log.info("注释生成请求: \n{}", json);
-
-            return sendJson("/comments/generate", "POST", json, root -> {
-                boolean success = root.path("success").asBoolean(false);
-                if (!success) {
-                    log.warn("注释生成请求失败");
-                    String msg = root.path("message").asText("Unknown error");
-                    throw new CompletionException(new RuntimeException(msg));
-                }
-                log.info("注释生成请求成功");
-                JsonNode dataNode = root.path("data");
-                return objectMapper.treeToValue(dataNode, CommentResponse.class);
-            });
+            json = objectMapper.writeValueAsBytes(compactPayload(request));
+            if (log.isDebugEnabled()) {
+                log.debug("注释生成请求: \n{}", new String(json, StandardCharsets.UTF_8));
+            }
         } catch (IOException e) {
             log.error("注释生成请求序列化失败", e);
             CompletableFuture<CommentResponse> f = new CompletableFuture<>();
             f.completeExceptionally(e);
             return f;
         }
+
+        CompletableFuture<CommentResponse> result = new CompletableFuture<>();
+        generateAttempt(request.getClientRequestId(), json, 1, TraceContext.current(), result);
+        return result;
+    }
+
+    private void generateAttempt(String requestId, byte[] json, int attempt, TraceContext trace,
+                                 CompletableFuture<CommentResponse> result) {
+        if (result.isDone()) {
+            return;
+        }
+        CompletableFuture<Envelope<CommentResponse>> future;
+        try (TraceContext.Scope ignored = trace != null ? trace.attach() : null) {
+            future = hedgedGenerate(requestId, json, trace);
+        }
+        future.whenComplete((envelope, ex) -> {
+            PluginMetrics metrics = PluginMetrics.getInstance();
+            if (ex == null) {
+                retryBudget.onSuccess();
+                if (!envelope.success()) {
+                    log.warn("注释生成请求失败");
+                    result.completeExceptionally(new RuntimeException(envelope.messageOr("Unknown error")));
+                    return;
+                }
+                log.info("注释生成请求成功, requestId={}, attempt={}", requestId, attempt);
+                metrics.increment(attempt == 1 ? PluginMetrics.SUCCESS_FIRST_ATTEMPT : PluginMetrics.SUCCESS_RETRIED);
+                result.complete(envelope.data());
+                return;
+            }
+
+            Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+            if (!isRetryable(cause)) {
+                result.completeExceptionally(cause);
+                return;
+            }
+            retryBudget.onFailure();
+            if (attempt >= maxAttempts || result.isDone()) {
+                result.completeExceptionally(cause);
+                return;
+            }
+            if (!retryBudget.canRetry()) {
+                log.warn("重试预算已耗尽，放弃重试, requestId={}", requestId);
+                metrics.increment(PluginMetrics.RETRY_BUDGET_EXHAUSTED);
+                result.completeExceptionally(cause);
+                return;
+            }
+
+            long delayMs = backoffMillis(attempt);
+            log.info("注释生成请求暂时失败，{} ms 后重试, requestId={}, attempt={}, cause={}",
+                    delayMs, requestId, attempt, cause.toString());
+            metrics.increment(PluginMetrics.RETRIES);
+            CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS, executor)
+                    .execute(() -> generateAttempt(requestId, json, attempt + 1, trace, result));
+        });
+    }
+
+    /**
+     * 向负载均衡选出的实例发送生成请求；开启对冲且在 p95 延迟内未返回时，向另一实例发送相同请求，
+     * 先成功返回者胜出，其余实例通过 /comments/cancel 取消。
+     */
+    private CompletableFuture<Envelope<CommentResponse>> hedgedGenerate(String requestId, byte[] json,
+                                                                         TraceContext trace) {
+        Endpoint primary = loadBalancer.select();
+        CompletableFuture<Envelope<CommentResponse>> primaryFuture = sendGenerate(primary, requestId, json);
+        long hedgeDelayMs = hedgeDelayMillis();
+        if (hedgeDelayMs < 0) {
+            return primaryFuture;
+        }
+
+        CompletableFuture<Envelope<CommentResponse>> result = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        primaryFuture.whenComplete((envelope, ex) -> settleHedge(result, pending, requestId, false, envelope, ex));
+
+        CompletableFuture.delayedExecutor(hedgeDelayMs, TimeUnit.MILLISECONDS, executor).execute(() -> {
+            Endpoint backup;
+            synchronized (result) {
+                if (result.isDone()) {
+                    return;
+                }
+                backup = loadBalancer.select(primary);
+                if (backup == primary || !backup.getCircuitBreaker().isAvailable()) {
+                    return;
+                }
+                pending.incrementAndGet();
+            }
+            log.info("生成请求 {} ms 内未返回，向 {} 发送对冲请求, requestId={}", hedgeDelayMs, backup, requestId);
+            PluginMetrics.getInstance().increment(PluginMetrics.HEDGE_SENT);
+            try (TraceContext.Scope ignored = trace != null ? trace.attach() : null) {
+                sendGenerate(backup, requestId, json)
+                        .whenComplete((envelope, ex) -> settleHedge(result, pending, requestId, true, envelope, ex));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 对冲请求的汇合：首个成功响应胜出并取消仍在运行的其他实例；全部失败时以最后一个异常结束
+     */
+    private void settleHedge(CompletableFuture<Envelope<CommentResponse>> result, AtomicInteger pending,
+                             String requestId, boolean hedge, Envelope<CommentResponse> envelope, Throwable ex) {
+        synchronized (result) {
+            if (ex == null) {
+                if (!result.complete(envelope)) {
+                    return;
+                }
+                if (hedge) {
+                    PluginMetrics.getInstance().increment(PluginMetrics.HEDGE_WON);
+                }
+            } else {
+                if (pending.decrementAndGet() == 0) {
+                    result.completeExceptionally(ex);
+                }
+                return;
+            }
+        }
+        Set<Endpoint> losers = endpointsByRequest.get(requestId);
+        if (losers != null) {
+            losers.forEach(endpoint -> cancelOn(endpoint, requestId));
+        }
+    }
+
+    /**
+     * 对冲触发延迟：近期单次生成往返的 p95；未开启、只有一个实例或样本不足时返回 -1
+     */
+    private long hedgeDelayMillis() {
+        if (!hedgingEnabled || loadBalancer.getEndpoints().size() < 2) {
+            return -1;
+        }
+        if (generateLatency.count() < Constant.HEDGE_MIN_SAMPLES) {
+            return -1;
+        }
+        return Math.max(Constant.HEDGE_MIN_DELAY_MS, Math.round(generateLatency.percentileMillis(0.95)));
+    }
+
+    /**
+     * 向指定实例发送一次生成请求，并维护该实例的在途数、延迟 EWMA 与 requestId 到实例的映射。
+     * 熔断或并发许可导致的本地拒绝没有发出请求，不计入延迟样本。
+     */
+    private CompletableFuture<Envelope<CommentResponse>> sendGenerate(Endpoint endpoint, String requestId, byte[] json) {
+        endpoint.begin();
+        if (requestId != null) {
+            endpointsByRequest.computeIfAbsent(requestId, k -> ConcurrentHashMap.newKeySet()).add(endpoint);
+        }
+        long start = System.nanoTime();
+        return sendJson(endpoint, "/comments/generate", "POST", json,
+                parser -> objectMapper.readValue(parser, CommentResponse.class))
+                .whenComplete((envelope, ex) -> {
+                    long elapsed = System.nanoTime() - start;
+                    Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                    if (ex == null) {
+                        generateLatency.record(elapsed);
+                        endpoint.end(elapsed / 1_000_000D);
+                    } else if (isLocalRejection(cause)) {
+                        endpoint.abandon();
+                    } else {
+                        // 失败至少按近期平均延迟的若干倍计入，使负载均衡暂时减少发往该实例的请求
+                        endpoint.end(Math.max(elapsed / 1_000_000D,
+                                endpoint.getLatencyEwmaMillis() * Constant.LB_FAILURE_LATENCY_PENALTY));
+                    }
+                    if (requestId != null) {
+                        endpointsByRequest.computeIfPresent(requestId, (k, set) -> {
+                            set.remove(endpoint);
+                            return set.isEmpty() ? null : set;
+                        });
+                    }
+                });
+    }
+
+    /**
+     * 全抖动指数退避：在 [0, min(上限, 基数 * 2^(attempt-1))] 内均匀取值，避免多个客户端同步重试
+     */
+    private long backoffMillis(int attempt) {
+        long ceiling = retryBaseDelayMs << Math.min(attempt - 1, 20);
+        ceiling = Math.min(retryMaxDelayMs, ceiling);
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    /**
+     * 仅对暂时性故障重试：后端 5xx/429、连接建立超时、连接被重置等 IO 异常。
+     * 请求超时不重试，超时通常意味着后端已过载，重试只会放大负载。
+     */
+    private static boolean isRetryable(Throwable t) {
+        if (t instanceof BackendHttpException httpError) {
+            return httpError.isRetryable();
+        }
+        if (t instanceof HttpConnectTimeoutException) {
+            return true;
+        }
+        return t instanceof IOException && !(t instanceof HttpTimeoutException);
     }
 
     @Override
@@ -128,39 +623,109 @@ public class PluginCommentClient implements CommentClient {
             return;
         }
 
+        // 只通知请求所在的实例；不在途说明请求已结束，无需取消
+        Set<Endpoint> targets = endpointsByRequest.get(requestId);
+        if (targets == null || targets.isEmpty()) {
+            log.info("请求已结束，丢弃取消请求, requestId={}", requestId);
+            PluginMetrics.getInstance().increment(PluginMetrics.CANCEL_DROPPED);
+            return;
+        }
+        List.copyOf(targets).forEach(endpoint -> cancelOn(endpoint, requestId));
+    }
+
+    /**
+     * 将取消请求放入该实例的合并窗口，窗口内的首个取消负责安排一次发送
+     */
+    private void cancelOn(Endpoint endpoint, String requestId) {
+        boolean[] opened = {false};
+        pendingCancels.compute(endpoint, (k, ids) -> {
+            if (ids == null) {
+                ids = new HashSet<>();
+                opened[0] = true;
+            }
+            ids.add(requestId);
+            return ids;
+        });
+        if (opened[0]) {
+            CompletableFuture.delayedExecutor(Constant.CANCEL_BATCH_WINDOW_MS, TimeUnit.MILLISECONDS, executor)
+                    .execute(() -> flushCancels(endpoint));
+        }
+    }
+
+    /**
+     * 发送窗口内积攒的取消请求：跳过窗口期间已结束的请求；后端支持批量取消时合并为一次请求，否则逐个发送。
+     * 取消请求走独立通道，不占用生成请求的并发信号量；熔断打开时后端不可用，直接丢弃。
+     */
+    private void flushCancels(Endpoint endpoint) {
+        Set<String> ids = pendingCancels.remove(endpoint);
+        if (ids == null || ids.isEmpty()) {
+            return;
+        }
+        PluginMetrics metrics = PluginMetrics.getInstance();
+        List<String> live = ids.stream()
+                .filter(id -> {
+                    Set<Endpoint> running = endpointsByRequest.get(id);
+                    return running != null && running.contains(endpoint);
+                })
+                .toList();
+        metrics.add(PluginMetrics.CANCEL_DROPPED, ids.size() - live.size());
+        if (live.isEmpty()) {
+            return;
+        }
+        if (endpoint.getCircuitBreaker().getState() == CircuitBreaker.State.OPEN) {
+            metrics.add(PluginMetrics.CANCEL_DROPPED, live.size());
+            return;
+        }
+
+        metrics.add(PluginMetrics.CANCEL_SENT, live.size());
+        Duration timeout = Duration.ofMillis(Constant.CANCEL_REQUEST_TIMEOUT_MS);
         try {
-            String json = objectMapper.writeValueAsString(new CancelRequestPayload(requestId));
-            log.info("发送取消请求: \n{}", json);
-
-            sendJson("/comments/cancel", "POST", json, root -> {
-                boolean success = root.path("success").asBoolean(false);
-                if (!success) {
-                    log.warn("取消请求失败, requestId={}", requestId);
-                    String msg = root.path("message").asText("Unknown error");
-                    throw new CompletionException(new RuntimeException(msg));
-                }
-                log.info("取消请求成功, requestId={}", requestId);
-                return null;
-            });
+            if (serverCapabilities.contains(CAPABILITY_CANCEL_BATCH)) {
+                metrics.increment(PluginMetrics.CANCEL_BATCHES);
+                byte[] json = objectMapper.writeValueAsBytes(new CancelBatchPayload(live));
+                log.info("发送批量取消请求, count={}, endpoint={}", live.size(), endpoint);
+                handleCancelResult(exchange(endpoint, "/comments/cancel/batch", "POST", json, timeout,
+                        CANCEL_DECODER), live.toString());
+                return;
+            }
+            for (String requestId : live) {
+                byte[] json = objectMapper.writeValueAsBytes(new CancelRequestPayload(requestId));
+                log.info("发送取消请求, requestId={}, endpoint={}", requestId, endpoint);
+                handleCancelResult(exchange(endpoint, "/comments/cancel", "POST", json, timeout,
+                        CANCEL_DECODER), requestId);
+            }
         } catch (Exception e) {
-            log.error("取消请求异常, requestId={}", requestId, e);
+            log.error("取消请求异常, requestIds={}", live, e);
         }
     }
 
+    private static void handleCancelResult(CompletableFuture<Envelope<Object>> future, String requestIds) {
+        future.whenComplete((envelope, ex) -> {
+            if (ex != null) {
+                log.warn("取消请求异常, requestIds={}", requestIds, ex);
+            } else if (!envelope.success()) {
+                log.warn("取消请求失败, requestIds={}, message={}", requestIds, envelope.messageOr("Unknown error"));
+            } else {
+                log.info("取消请求成功, requestIds={}", requestIds);
+            }
+        });
+    }
+
     @Override
     public CompletableFuture<List<String>> getAvailableModels() {
         try {
-            return sendJson("/comments/models", "GET", null, root -> {
-                boolean success = root.path("success").asBoolean(false);
-                if (!success) {
-                    log.warn("获取可用模型请求失败");
-                    String msg = root.path("message").asText("Unknown error");
-                    throw new CompletionException(new RuntimeException(msg));
-                }
-                log.info("获取可用模型请求成功");
-                JsonNode dataNode = root.path("data");
-                return objectMapper.convertValue(dataNode, objectMapper.getTypeFactory().constructCollectionType(List.class, String.class));
-            });
+            return sendJson(loadBalancer.select(), "/comments/models", "GET", null,
+                    parser -> objectMapper.<List<String>>readValue(parser,
+                            objectMapper.getTypeFactory().constructCollectionType(List.class, String.class)))
+                    .thenApply(envelope -> {
+                        if (!envelope.success()) {
+                            log.warn("获取可用模型请求失败");
+                            throw new CompletionException(new RuntimeException(envelope.messageOr("Unknown error")));
+                        }
+                        log.info("获取可用模型请求成功, capabilities={}", envelope.capabilities());
+                        serverCapabilities = envelope.capabilities();
+                        return envelope.data();
+                    });
         } catch (Exception e) {
             log.error("获取可用模型请求失败", e);
             CompletableFuture<List<String>> f = new CompletableFuture<>();
@@ -169,6 +734,24 @@ public class PluginCommentClient implements CommentClient {
         }
     }
 
+    /**
+     * 各实例熔断状态的汇总：任一实例 CLOSED 即为 CLOSED，全部 OPEN 才为 OPEN，其余为 HALF_OPEN
+     */
+    @Override
+    public CircuitBreaker.State getCircuitState() {
+        CircuitBreaker.State aggregate = CircuitBreaker.State.OPEN;
+        for (Endpoint endpoint : loadBalancer.getEndpoints()) {
+            CircuitBreaker.State state = endpoint.getCircuitBreaker().getState();
+            if (state == CircuitBreaker.State.CLOSED) {
+                return state;
+            }
+            if (state == CircuitBreaker.State.HALF_OPEN) {
+                aggregate = state;
+            }
+        }
+        return aggregate;
+    }
+
     @Override
     public void shutdown() {
         log.info("关闭插件注释客户端线程池...");
@@ -190,14 +773,46 @@ public class PluginCommentClient implements CommentClient {
     }
 
     public static class Builder {
-        private String baseUrl;
+        private List<String> baseUrls;
+        private LoadBalancer.Strategy loadBalancing = LoadBalancer.Strategy.P2C_EWMA;
+        private boolean hedging = Constant.HEDGE_ENABLED;
         private int threadPoolSize = Constant.HTTP_DEFAULT_THREAD_POOL_SIZE;
         private int maxConcurrentRequests = Constant.HTTP_DEFAULT_MAX_CONNECTION_REQUESTS;
         private Duration connectTimeout = Duration.ofSeconds(Constant.HTTP_DEFAULT_CONNECTION_TIMEOUT_S);
         private Duration requestTimeout = Duration.ofSeconds(Constant.HTTP_DEFAULT_REQUEST_TIMEOUT_S);
+        private int gzipMinBytes = Constant.GZIP_MIN_REQUEST_BYTES;
+        private int maxAttempts = Constant.RETRY_MAX_ATTEMPTS;
+        private long retryBaseDelayMs = Constant.RETRY_BASE_DELAY_MS;
+        private long retryMaxDelayMs = Constant.RETRY_MAX_DELAY_MS;
+        private RetryBudget retryBudget;
+        private int circuitFailureThreshold = Constant.CIRCUIT_FAILURE_THRESHOLD;
+        private Duration circuitOpenDuration = Duration.ofMillis(Constant.CIRCUIT_OPEN_DURATION_MS);
 
+        /**
+         * 后端基础URL，多个同构实例以逗号分隔
+         */
         public Builder baseUrl(String baseUrl) {
-            this.baseUrl = baseUrl;
+            return baseUrls(Arrays.stream(baseUrl.split(","))
+                    .map(String::trim)
+                    .filter(url -> !url.isEmpty())
+                    .toList());
+        }
+
+        public Builder baseUrls(List<String> baseUrls) {
+            this.baseUrls = List.copyOf(baseUrls);
+            return this;
+        }
+
+        public Builder loadBalancing(LoadBalancer.Strategy strategy) {
+            this.loadBalancing = Objects.requireNonNull(strategy);
+            return this;
+        }
+
+        /**
+         * 是否在 p95 延迟内未返回时向另一实例发送对冲请求，仅在配置了多个实例时生效
+         */
+        public Builder hedging(boolean enabled) {
+            this.hedging = enabled;
             return this;
         }
 
@@ -221,14 +836,65 @@ public class PluginCommentClient implements CommentClient {
             return this;
         }
 
+        /**
+         * 请求体达到该字节数才压缩，Integer.MAX_VALUE 表示不压缩请求体
+         */
+        public Builder gzipMinBytes(int bytes) {
+            this.gzipMinBytes = bytes;
+            return this;
+        }
+
+        /**
+         * 生成请求的最大尝试次数（含首次），1 表示不重试
+         */
+        public Builder maxAttempts(int attempts) {
+            this.maxAttempts = attempts;
+            return this;
+        }
+
+        public Builder retryBackoff(Duration baseDelay, Duration maxDelay) {
+            this.retryBaseDelayMs = baseDelay.toMillis();
+            this.retryMaxDelayMs = maxDelay.toMillis();
+            return this;
+        }
+
+        public Builder retryBudget(RetryBudget budget) {
+            this.retryBudget = budget;
+            return this;
+        }
+
+        /**
+         * 每个后端实例各自的熔断参数
+         */
+        public Builder circuitBreaker(int failureThreshold, Duration openDuration) {
+            this.circuitFailureThreshold = failureThreshold;
+            this.circuitOpenDuration = openDuration;
+            return this;
+        }
+
         public PluginCommentClient build() {
             return new PluginCommentClient(this);
         }
     }
 
+    /**
+     * 从位于 data 字段值起始处的解析器中读取业务数据
+     */
     @FunctionalInterface
-    private interface FunctionWithIOException<T, R> {
-        R apply(T t) throws Exception;
+    private interface DataDecoder<T> {
+        T decode(JsonParser parser) throws IOException;
+    }
+
+    /**
+     * 后端统一响应信封
+     */
+    private record Envelope<T>(boolean success, String message, T data, Set<String> capabilities) {
+        private String messageOr(String defaultMessage) {
+            return message != null ? message : defaultMessage;
+        }
+    }
+
+    private record CancelBatchPayload(@SuppressWarnings("unused") List<String> requestIds) {
     }
 
     private record CancelRequestPayload(@SuppressWarnings("unused") String requestId) {
@@ -0,0 +1,49 @@
+package com.nju.comment.client;
+
+/**
+ * 全局重试预算，防止重试在后端过载时放大流量。
+ * <p>
+ * 令牌桶初始为满：每次可重试的失败消耗 1 个令牌，每次成功归还 tokenRatio 个令牌；
+ * 令牌数不高于上限的一半时禁止重试，直到成功请求把令牌补回来。
+ * 持续故障时重试量因此被限制在成功量的 tokenRatio 倍左右。
+ */
+public final class RetryBudget {
+
+    private final double maxTokens;
+    private final double tokenRatio;
+    private double tokens;
+
+    public RetryBudget(double maxTokens, double tokenRatio) {
+        if (maxTokens <= 0 || tokenRatio <= 0) {
+            throw new IllegalArgumentException("maxTokens 与 tokenRatio 必须为正数");
+        }
+        this.maxTokens = maxTokens;
+        this.tokenRatio = tokenRatio;
+        this.tokens = maxTokens;
+    }
+
+    /**
+     * 记录一次成功请求
+     */
+    public synchronized void onSuccess() {
+        tokens = Math.min(maxTokens, tokens + tokenRatio);
+    }
+
+    /**
+     * 记录一次可重试的失败
+     */
+    public synchronized void onFailure() {
+        tokens = Math.max(0, tokens - 1);
+    }
+
+    /**
+     * 当前预算是否允许重试
+     */
+    public synchronized boolean canRetry() {
+        return tokens > maxTokens / 2;
+    }
+
+    public synchronized double getTokens() {
+        return tokens;
+    }
+}
@@ -1,17 +1,27 @@
 package com.nju.comment.client.global;
 
 import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import com.nju.comment.constant.Constant;
 import com.nju.comment.dto.GenerateOptions;
 import com.nju.comment.dto.InFlightRecord;
 import com.nju.comment.dto.MethodContext;
 import com.nju.comment.dto.request.CommentRequest;
 import com.nju.comment.dto.response.CommentResponse;
+import com.nju.comment.client.CircuitBreaker;
+import com.nju.comment.client.CircuitOpenException;
 import com.nju.comment.client.CommentClient;
+import com.nju.comment.client.ModelRouter;
 import com.nju.comment.client.PluginCommentClient;
+import com.nju.comment.metrics.PluginMetrics;
+import com.nju.comment.metrics.event.HttpExchangeEvent;
+import com.nju.comment.metrics.event.PipelineEvent;
+import com.nju.comment.trace.TraceContext;
+import com.nju.comment.trace.TraceRecorder;
 import com.nju.comment.util.TextProcessUtil;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.VisibleForTesting;
 
 import java.time.Duration;
 import java.util.List;
@@ -30,7 +40,15 @@ public class CommentGeneratorClient {
 
     // 方法维度的在途请求记录，用内容指纹区分「重复触发」与「修改后再触发」
     private static final Map<String, InFlightRecord> IN_FLIGHT_BY_METHOD = new ConcurrentHashMap<>();
+    // 方法维度的待发送请求，内容在静默期内保持不变才真正发出
+    private static final Map<String, PendingDispatch> PENDING_BY_METHOD = new ConcurrentHashMap<>();
     private static final String FINGERPRINT_DELIM = "\u0001";
+    private static final PluginMetrics METRICS = PluginMetrics.getInstance();
+
+    static {
+        METRICS.registerGauge(PluginMetrics.QUEUE_IN_FLIGHT, IN_FLIGHT_BY_METHOD::size);
+        METRICS.registerGauge(PluginMetrics.QUEUE_DEBOUNCE_PENDING, PENDING_BY_METHOD::size);
+    }
 
     @Getter
     private static List<String> modelsList;
@@ -41,7 +59,7 @@ public class CommentGeneratorClient {
     /**
      * 初始化客户端
      *
-     * @param baseUrl 服务端基础URL，null或空字符串时使用默认值
+     * @param baseUrl 服务端基础URL，多个实例以逗号分隔，null或空字符串时使用默认值
      */
     public static void init(String baseUrl) {
         if (client != null) {
@@ -71,6 +89,7 @@ public class CommentGeneratorClient {
     /**
      * 按方法维度的生成注释。异步模式，不阻塞调用线程。
      * 同一方法：重复触发（内容未变）以最初为准并跳过本次；在返回前又修改并再触发则以最近为准，会先取消在途请求再发新请求。
+     * 自动刷新发起的请求需等方法内容在静默期内保持不变才发出，避免边输入边触发的「取消-重发」风暴；用户显式触发的请求不等待。
      *
      * @param methodKey 方法唯一键，为 null 时不按方法做在途去重/取消
      * @param data      方法上下文，用于计算内容指纹
@@ -82,6 +101,76 @@ public class CommentGeneratorClient {
         // 初始化检查
         initCheck();
 
+        if (methodKey == null || methodKey.isBlank()) {
+            dispatch(null, data, options, callback);
+            return;
+        }
+        if (options.isExplicit() || Constant.CLIENT_SEND_QUIET_PERIOD_MS <= 0) {
+            PendingDispatch pending = PENDING_BY_METHOD.remove(methodKey);
+            if (pending != null) {
+                pending.cancelTimer();
+                pending.callback.accept(null);
+            }
+            dispatch(methodKey, data, options, callback);
+            return;
+        }
+        debounce(methodKey, data, options, callback);
+    }
+
+    /**
+     * 静默期门控：同一方法内容变化时重新计时，被替换的请求回调 null；内容与在途请求相同时直接按重复触发跳过
+     */
+    private static void debounce(String methodKey, MethodContext data, GenerateOptions options,
+                                 Consumer<String> callback) {
+        String fingerprint = contentFingerprint(data);
+        InFlightRecord inFlight = IN_FLIGHT_BY_METHOD.get(methodKey);
+        if (inFlight != null) {
+            if (Objects.equals(inFlight.getContentFingerprint(), fingerprint)) {
+                log.info("方法 {} 已有相同内容的在途请求，跳过本次", methodKey);
+                METRICS.increment(PluginMetrics.DEDUP_HITS);
+                callback.accept(null);
+                return;
+            }
+            // 在途请求的内容已过期，不必等到静默期结束再取消
+            cancelForMethod(methodKey);
+        }
+
+        PendingDispatch next = new PendingDispatch(fingerprint, data, options, callback, TraceContext.current());
+        PendingDispatch[] previous = {null};
+        PendingDispatch current = PENDING_BY_METHOD.compute(methodKey, (k, pending) -> {
+            if (pending != null && pending.fingerprint.equals(fingerprint)) {
+                return pending;
+            }
+            previous[0] = pending;
+            return next;
+        });
+        if (current != next) {
+            // 内容未变，沿用已在计时的请求
+            METRICS.increment(PluginMetrics.DEDUP_HITS);
+            callback.accept(null);
+            return;
+        }
+        if (previous[0] != null) {
+            previous[0].cancelTimer();
+            METRICS.increment(PluginMetrics.DEBOUNCE_SUPERSEDED);
+            previous[0].callback.accept(null);
+        }
+        METRICS.increment(PluginMetrics.DEBOUNCE_DEFERRED);
+        next.timer = AppExecutorUtil.getAppScheduledExecutorService().schedule(() -> {
+            if (!PENDING_BY_METHOD.remove(methodKey, next)) {
+                return;
+            }
+            try (TraceContext.Scope ignored = next.trace != null ? next.trace.attach() : null) {
+                dispatch(methodKey, next.data, next.options, next.callback);
+            }
+        }, Constant.CLIENT_SEND_QUIET_PERIOD_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 立即发出生成请求（经过在途去重/取消）
+     */
+    private static void dispatch(String methodKey, MethodContext data, GenerateOptions options,
+                                 Consumer<String> callback) {
         // 计算内容指纹
         String fingerprint = contentFingerprint(data);
         if (methodKey != null && !methodKey.isBlank()) {
@@ -89,6 +178,7 @@ public class CommentGeneratorClient {
             if (existing != null) {
                 if (Objects.equals(existing.getContentFingerprint(), fingerprint)) {
                     log.info("方法 {} 已有相同内容的在途请求，跳过本次", methodKey);
+                    METRICS.increment(PluginMetrics.DEDUP_HITS);
                     callback.accept(null);
                     return;
                 }
@@ -97,19 +187,29 @@ public class CommentGeneratorClient {
             }
         }
 
-        // 构建请求并发送（在后台线程中处理）
+        // 构建请求并发送（在后台线程中处理），沿用刷新流程的追踪上下文，traceId 即 clientRequestId
+        TraceContext trace = TraceContext.current();
         ApplicationManager.getApplication().executeOnPooledThread(() -> {
-            try {
-                String requestId = UUID.randomUUID().toString();
-                log.info("开始生成注释, requestId={}, methodKey={}", requestId, methodKey);
+            try (TraceContext.Scope ignored = trace != null ? trace.attach() : null) {
+                String requestId = trace != null ? trace.getTraceId() : UUID.randomUUID().toString();
+                if (trace != null) {
+                    trace.promote();
+                }
+                long dispatchMicros = TraceRecorder.nowMicros();
+                String modelName = resolveModel(options);
+                log.info("开始生成注释, requestId={}, methodKey={}, model={}", requestId, methodKey, modelName);
                 CommentRequest req = CommentRequest.builder()
                         .oldMethod(data.getOldMethod())
                         .oldComment(data.getOldComment())
                         .newMethod(data.getNewMethod())
-                        .modelName(options.getModelName())
+                        .modelName(modelName)
                         .clientRequestId(requestId)
                         .build();
 
+                String model = String.valueOf(modelName);
+                long sentAt = System.nanoTime();
+                HttpExchangeEvent event = new HttpExchangeEvent();
+                event.begin();
                 CompletableFuture<CommentResponse> future = client.generateComment(req);
 
                 // 记录在途请求
@@ -120,7 +220,9 @@ public class CommentGeneratorClient {
 
                 // 在后台线程上等待结果，不阻塞UI线程
                 future.whenComplete((resp, ex) -> {
-                    try {
+                    commitHttpEvent(event, methodKey, requestId, model, resp, ex);
+                    TraceRecorder.getInstance().record(trace, "generateComment", "client", dispatchMicros);
+                    try (TraceContext.Scope callbackScope = trace != null ? trace.attach() : null) {
                         if (ex != null) {
                             // 解析真实异常
                             Throwable t = ex instanceof CompletionException && ex.getCause() != null
@@ -128,20 +230,33 @@ public class CommentGeneratorClient {
                                     : ex;
                             if (t instanceof CancellationException) {
                                 log.info("注释生成被取消, requestId={}, methodKey={}", requestId, methodKey);
+                                METRICS.increment(PluginMetrics.tagged(PluginMetrics.BACKEND_CANCELLED, model));
+                            } else if (t instanceof CircuitOpenException) {
+                                log.info("后端熔断中，跳过注释生成, requestId={}, methodKey={}", requestId, methodKey);
                             } else {
                                 log.error("注释生成服务异常", ex);
+                                METRICS.increment(PluginMetrics.tagged(PluginMetrics.BACKEND_FAILURE, model));
+                                if (modelName != null) {
+                                    ModelRouter.getInstance().recordFailure(modelName);
+                                }
                             }
                             callback.accept(null);
                             return;
                         }
 
+                        METRICS.recordSince(PluginMetrics.tagged(PluginMetrics.BACKEND_LATENCY, model), sentAt);
+                        if (modelName != null) {
+                            ModelRouter.getInstance().recordSuccess(modelName, System.nanoTime() - sentAt);
+                        }
                         if (resp != null && resp.isSuccess()) {
                             // 成功
                             log.info("注释生成成功:\n{}", resp.getGeneratedComment());
+                            METRICS.increment(PluginMetrics.tagged(PluginMetrics.BACKEND_SUCCESS, model));
                             callback.accept(resp.getGeneratedComment());
                         } else {
                             // 失败
                             log.warn("注释生成失败");
+                            METRICS.increment(PluginMetrics.tagged(PluginMetrics.BACKEND_FAILURE, model));
                             callback.accept(null);
                         }
                     } catch (Exception e) {
@@ -156,10 +271,74 @@ public class CommentGeneratorClient {
         });
     }
 
+    /**
+     * 解析本次请求使用的模型：选择了自动模式时由 {@link ModelRouter} 按近期延迟挑选
+     */
+    private static String resolveModel(GenerateOptions options) {
+        String modelName = options.getModelName();
+        if (!ModelRouter.isAuto(modelName)) {
+            return modelName;
+        }
+        List<String> candidates = modelsList;
+        if (candidates == null || candidates.isEmpty()) {
+            candidates = getAvailableModels();
+        }
+        return ModelRouter.getInstance().route(candidates, options.isInteractive());
+    }
+
+    /**
+     * 提交一次 HTTP 往返的 JFR 事件，耗时覆盖从发送到收到响应
+     */
+    private static void commitHttpEvent(HttpExchangeEvent event, String methodKey, String requestId, String model,
+                                        CommentResponse resp, Throwable ex) {
+        if (!event.shouldCommit()) {
+            return;
+        }
+        event.methodKey = methodKey;
+        event.requestId = requestId;
+        event.model = model;
+        if (ex != null) {
+            Throwable t = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+            event.outcome = t instanceof CancellationException ? PipelineEvent.OUTCOME_CANCELLED : PipelineEvent.OUTCOME_FAILED;
+        } else {
+            event.outcome = resp != null && resp.isSuccess() ? PipelineEvent.OUTCOME_OK : PipelineEvent.OUTCOME_FAILED;
+        }
+        event.commit();
+    }
+
+    /**
+     * 静默期内等待发送的请求
+     */
+    private static final class PendingDispatch {
+        private final String fingerprint;
+        private final MethodContext data;
+        private final GenerateOptions options;
+        private final Consumer<String> callback;
+        private final TraceContext trace;
+        private volatile ScheduledFuture<?> timer;
+
+        private PendingDispatch(String fingerprint, MethodContext data, GenerateOptions options,
+                                Consumer<String> callback, TraceContext trace) {
+            this.fingerprint = fingerprint;
+            this.data = data;
+            this.options = options;
+            this.callback = callback;
+            this.trace = trace;
+        }
+
+        private void cancelTimer() {
+            ScheduledFuture<?> t = timer;
+            if (t != null) {
+                t.cancel(false);
+            }
+        }
+    }
+
     /**
      * 用于判断同一方法下是「重复触发」还是「修改后再触发」。重复触发以最初为准；修改后再触发以最近为准。
      */
-    private static String contentFingerprint(MethodContext ctx) {
+    @VisibleForTesting
+    static String contentFingerprint(MethodContext ctx) {
         if (ctx == null) return "";
         String o = TextProcessUtil.safeTrimNullable(ctx.getOldMethod());
         String c = TextProcessUtil.safeTrimNullable(ctx.getOldComment());
@@ -178,9 +357,30 @@ public class CommentGeneratorClient {
             client.cancelRequest(record.getRequestId());
         }
         record.getFuture().cancel(true);
+        METRICS.increment(PluginMetrics.CANCELLATIONS);
         log.info("已取消方法 {} 的在途注释生成请求, requestId={}", methodKey, record.getRequestId());
     }
 
+    /**
+     * 放弃指定方法尚在静默期内的待发送请求，并取消其在途请求
+     */
+    public static void discardForMethod(String methodKey) {
+        if (methodKey == null || methodKey.isBlank()) return;
+        PendingDispatch pending = PENDING_BY_METHOD.remove(methodKey);
+        if (pending != null) {
+            pending.cancelTimer();
+            pending.callback.accept(null);
+        }
+        cancelForMethod(methodKey);
+    }
+
+    /**
+     * 尚未完成的生成请求数：在途请求与静默期内的待发送请求
+     */
+    public static int getPendingRequestCount() {
+        return IN_FLIGHT_BY_METHOD.size() + PENDING_BY_METHOD.size();
+    }
+
     /**
      * 获取可用模型列表
      *
@@ -207,6 +407,14 @@ public class CommentGeneratorClient {
         }
     }
 
+    /**
+     * 后端熔断器当前状态，客户端未初始化时视为 CLOSED
+     */
+    public static CircuitBreaker.State getCircuitState() {
+        CommentClient current = client;
+        return current == null ? CircuitBreaker.State.CLOSED : current.getCircuitState();
+    }
+
     /**
      * 初始化检查
      */
@@ -231,6 +439,8 @@ public class CommentGeneratorClient {
      * 关闭客户端，释放资源
      */
     public static void shutdown() {
+        PENDING_BY_METHOD.values().forEach(PendingDispatch::cancelTimer);
+        PENDING_BY_METHOD.clear();
         synchronized (LOCK) {
             if (client != null) {
                 log.info("关闭 CommentGeneratorClient");
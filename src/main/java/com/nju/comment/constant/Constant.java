@@ -8,6 +8,9 @@ public final class Constant {
     // UI refresh delays
     public static final int UI_REFRESH_INITIAL_DELAY_MS = 0;
     public static final int UI_REFRESH_DELAY_MS = 100;
+    public static final int DIAGNOSTICS_REFRESH_DELAY_MS = 1000;
+    public static final int BACKEND_STATUS_REFRESH_DELAY_MS = 1000;
+    public static final int SCAN_PROGRESS_REFRESH_DELAY_MS = 200;
 
     // Auto delete delays
     public static final int AUTO_DELETE_INITIAL_DELAY_MS = 3000;
@@ -17,6 +20,16 @@ public final class Constant {
     public static final int AUTO_UPDATE_INITIAL_DELAY_MS = 3000;
     public static final int AUTO_UPDATE_DELAY_MS = 1000;
 
+    // Typing idle settings
+    public static final long TYPING_IDLE_MS = 1500;
+
+    // Background refresh settings
+    public static final int BACKGROUND_REFRESH_PARALLELISM = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    public static final int BACKGROUND_CPU_BUDGET_DEFAULT_PERCENT = 50;
+    public static final int BACKGROUND_CPU_BUDGET_MIN_PERCENT = 5;
+    public static final int BACKGROUND_CPU_BUDGET_MAX_PERCENT = 100 * Runtime.getRuntime().availableProcessors();
+    public static final long BACKGROUND_CPU_WINDOW_MS = 5000;
+
     // HTTP default settings
     public static final int HTTP_DEFAULT_THREAD_POOL_SIZE = 10;
     public static final int HTTP_DEFAULT_MAX_CONNECTION_REQUESTS = 20;
@@ -28,4 +41,43 @@ public final class Constant {
     public static final int CLIENT_REQUEST_TIMEOUT_S = 60;
     public static final int CLIENT_THREAD_POOL_SIZE = 10;
     public static final int CLIENT_MAX_CONNECTION_REQUESTS = 20;
+    public static final long CLIENT_SEND_QUIET_PERIOD_MS = 2000;
+
+    // Model router settings
+    public static final int MODEL_ROUTER_WINDOW = 50;
+    public static final int MODEL_ROUTER_MIN_SAMPLES = 5;
+    public static final double MODEL_ROUTER_EXPLORE_RATE = 0.05;
+
+    // Retry settings
+    public static final int RETRY_MAX_ATTEMPTS = 3;
+    public static final long RETRY_BASE_DELAY_MS = 200;
+    public static final long RETRY_MAX_DELAY_MS = 5000;
+    public static final double RETRY_BUDGET_MAX_TOKENS = 10;
+    public static final double RETRY_BUDGET_TOKEN_RATIO = 0.1;
+
+    // Load balancing and hedging settings
+    public static final double LB_LATENCY_EWMA_ALPHA = 0.3;
+    public static final double LB_FAILURE_LATENCY_PENALTY = 2.0;
+    public static final boolean HEDGE_ENABLED = false;
+    public static final int HEDGE_MIN_SAMPLES = 20;
+    public static final long HEDGE_MIN_DELAY_MS = 50;
+    public static final long HEDGE_LATENCY_WINDOW_MS = 60_000;
+
+    // Circuit breaker settings
+    public static final int CIRCUIT_FAILURE_THRESHOLD = 5;
+    public static final long CIRCUIT_OPEN_DURATION_MS = 30_000;
+
+    // Cancellation settings
+    public static final long CANCEL_BATCH_WINDOW_MS = 50;
+    public static final long CANCEL_REQUEST_TIMEOUT_MS = 5000;
+
+    // Diff payload settings
+    public static final long DIFF_MAX_LCS_CELLS = 4_000_000L;
+    public static final int DIFF_MIN_SAVED_BYTES = 256;
+
+    // Compression settings
+    public static final int GZIP_MIN_REQUEST_BYTES = 1024;
+
+    // Tracing settings
+    public static final int TRACE_BUFFER_CAPACITY = 50_000;
 }
@@ -9,4 +9,16 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 public class GenerateOptions {
     String modelName;
+    // 用户在编辑器中对单个方法触发的请求为交互式，自动更新与批量扫描为后台请求
+    boolean interactive;
+    // 用户显式触发的请求（单方法、单文件、Update All）不等待发送静默期，只有自动刷新才等待
+    boolean explicit;
+
+    public GenerateOptions(String modelName) {
+        this(modelName, false);
+    }
+
+    public GenerateOptions(String modelName, boolean interactive) {
+        this(modelName, interactive, interactive);
+    }
 }
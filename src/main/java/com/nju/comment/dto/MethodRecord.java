@@ -25,6 +25,9 @@ public class MethodRecord {
     String stagedMethod;
     String stagedComment;
 
+    // 产生当前暂存注释的追踪 ID，仅用于 UI 展示时关联追踪区间
+    transient String traceId;
+
     public MethodRecord(String qualifiedNameContainClass, String signature, String oldMethod, String oldComment) {
         this.qualifiedNameContainClass = qualifiedNameContainClass;
         this.signature = signature;
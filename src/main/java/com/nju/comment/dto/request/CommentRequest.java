@@ -1,16 +1,22 @@
 package com.nju.comment.dto.request;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class CommentRequest {
 
+    /**
+     * newMethod 为相对 oldMethod 的 unified diff；同时也是后端在 /comments/models 中声明的能力名
+     */
+    public static final String FORMAT_UNIFIED_DIFF = "unified-diff";
+
     private String oldMethod;
 
     private String oldComment;
@@ -20,4 +26,10 @@ public class CommentRequest {
     private String modelName;
 
     private String clientRequestId;
+
+    /**
+     * newMethod 的编码格式，为空表示全文
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String newMethodFormat;
 }
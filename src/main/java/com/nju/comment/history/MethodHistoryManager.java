@@ -1,6 +1,7 @@
 package com.nju.comment.history;
 
 import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.project.Project;
 import com.intellij.psi.PsiComment;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiMethod;
@@ -11,13 +12,21 @@ import com.nju.comment.dto.*;
 import com.nju.comment.history.state.MethodStateContext;
 import com.nju.comment.history.state.MethodStateMachine;
 import com.nju.comment.history.state.MethodStateResult;
+import com.nju.comment.metrics.PluginMetrics;
+import com.nju.comment.metrics.event.PipelineEvent;
+import com.nju.comment.metrics.event.PsiExtractionEvent;
+import com.nju.comment.metrics.event.StateEvaluationEvent;
+import com.nju.comment.trace.TraceRecorder;
 import com.nju.comment.util.MethodRecordUtil;
+import com.nju.comment.util.MethodValidationUtil;
 import com.nju.comment.util.TextProcessUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.List;
+import java.util.Set;
 import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
 
 @Slf4j
 public record MethodHistoryManager(MethodHistoryRepository repository) {
@@ -32,14 +41,19 @@ public record MethodHistoryManager(MethodHistoryRepository repository) {
      */
     public void updateMethodHistoryAsync(PsiMethod method, BiConsumer<MethodContext, MethodStatus> commentGeneratorAsync) {
         // 提取方法关键信息
+        PsiExtractionEvent extractionEvent = new PsiExtractionEvent();
+        extractionEvent.begin();
         String path = MethodRecordUtil.getFilePath(method);
-        if (path == null) return;
-
-        String qualifiedName = MethodRecordUtil.getQualifiedNameContainClass(method);
-        if (qualifiedName == null) return;
-
-        String signature = MethodRecordUtil.getMethodSignature(method);
-        if (signature == null || signature.isBlank()) return;
+        String qualifiedName = path == null ? null : MethodRecordUtil.getQualifiedNameContainClass(method);
+        String signature = qualifiedName == null ? null : MethodRecordUtil.getMethodSignature(method);
+        if (signature == null || signature.isBlank()) {
+            if (extractionEvent.shouldCommit()) {
+                extractionEvent.file = path;
+                extractionEvent.outcome = PipelineEvent.OUTCOME_SKIPPED;
+                extractionEvent.commit();
+            }
+            return;
+        }
 
         String curComment = ReadAction.compute(() -> {
             PsiDocComment pdc = method.getDocComment();
@@ -53,16 +67,49 @@ public record MethodHistoryManager(MethodHistoryRepository repository) {
 
         // 查找历史记录并评估状态
         String key = MethodRecordUtil.buildMethodKey(qualifiedName, signature);
+        if (extractionEvent.shouldCommit()) {
+            extractionEvent.methodKey = key;
+            extractionEvent.file = path;
+            extractionEvent.outcome = PipelineEvent.OUTCOME_OK;
+            extractionEvent.commit();
+        }
+
         MethodRecord record = repository.findByKey(key);
 
         // 构建状态机上下文并评估
+        StateEvaluationEvent evaluationEvent = new StateEvaluationEvent();
+        evaluationEvent.begin();
         MethodStateContext ctx = new MethodStateContext(method, record, curMethod, curComment, path, qualifiedName, signature);
-        MethodStateResult result = STATE_MACHINE.evaluate(ctx);
+        MethodStateResult result;
+        try (TraceRecorder.ActiveSpan span = TraceRecorder.getInstance().span("evaluateState", "state")) {
+            result = STATE_MACHINE.evaluate(ctx);
+        }
+        if (evaluationEvent.shouldCommit()) {
+            evaluationEvent.methodKey = key;
+            evaluationEvent.file = path;
+            evaluationEvent.state = result.state().name();
+            evaluationEvent.outcome = PipelineEvent.OUTCOME_OK;
+            evaluationEvent.commit();
+        }
+
+        // 仅在即将发起生成请求时执行语义层校验，未变化的方法不承担引用解析开销；未通过时既不保存记录也不发起请求
+        if (result.requiresGeneration()) {
+            boolean semanticallyValid;
+            try (TraceRecorder.ActiveSpan span = TraceRecorder.getInstance().span("semanticValidation", "validation")) {
+                semanticallyValid = ReadAction.compute(() -> MethodValidationUtil.isSemanticallyValid(method));
+            }
+            if (!semanticallyValid) {
+                log.info("方法未通过语义校验，暂不生成注释：{}", key);
+                return;
+            }
+        }
 
         // 保存更新后的记录（如有更改）
         MethodRecord updatedRecord = result.record();
         if (updatedRecord != null && (result.recordChanged() || record == null)) {
             repository.save(updatedRecord);
+            PluginMetrics.getInstance().increment(
+                    PluginMetrics.tagged(PluginMetrics.STATE_TRANSITIONS, result.state().name()));
         }
 
         log.info("methodKey: {}, status: {}", key, result.state().toString());
@@ -81,15 +128,17 @@ public record MethodHistoryManager(MethodHistoryRepository repository) {
     /**
      * 清理已删除方法的历史记录
      *
+     * @param project 方法所属项目
      * @param methods 当前存在的方法列表
      */
-    public void clearDeletedMethodHistories(List<PsiMethod> methods) {
-        List<String> existingMethods = ReadAction.compute(() ->
+    public void clearDeletedMethodHistories(Project project, List<PsiMethod> methods) {
+        Set<String> existingMethods = ReadAction.compute(() ->
                 methods.stream()
                         .map(MethodRecordUtil::buildMethodKey)
                         .filter(s -> !s.isBlank())
-                        .toList()
+                        .collect(Collectors.toSet())
         );
+        MethodValidationUtil.retainCache(project, existingMethods);
 
         List<MethodRecord> allRecords = repository.findAll();
         for (MethodRecord record : allRecords) {
@@ -126,6 +175,7 @@ public record MethodHistoryManager(MethodHistoryRepository repository) {
      */
     public void deleteByKey(String key) {
         repository.deleteByKey(key);
+        MethodValidationUtil.invalidateCache(key);
     }
 
     /**
@@ -1,6 +1,8 @@
 package com.nju.comment.history;
 
 import com.nju.comment.dto.MethodRecord;
+import com.nju.comment.metrics.event.PipelineEvent;
+import com.nju.comment.metrics.event.RepositoryWriteEvent;
 import com.nju.comment.util.MethodRecordUtil;
 
 import java.util.List;
@@ -28,13 +30,31 @@ public class MethodHistoryRepositoryImpl implements MethodHistoryRepository {
 
     @Override
     public void save(MethodRecord record) {
+        RepositoryWriteEvent event = new RepositoryWriteEvent();
+        event.begin();
         String key = MethodRecordUtil.buildMethodKey(record.getQualifiedNameContainClass(), record.getSignature());
         history.put(key, record);
+        if (event.shouldCommit()) {
+            event.methodKey = key;
+            event.file = record.getFilePath();
+            event.operation = RepositoryWriteEvent.OPERATION_SAVE;
+            event.outcome = PipelineEvent.OUTCOME_OK;
+            event.commit();
+        }
     }
 
     @Override
     public void deleteByKey(String key) {
-        history.remove(key);
+        RepositoryWriteEvent event = new RepositoryWriteEvent();
+        event.begin();
+        MethodRecord removed = history.remove(key);
+        if (event.shouldCommit()) {
+            event.methodKey = key;
+            event.file = removed != null ? removed.getFilePath() : null;
+            event.operation = RepositoryWriteEvent.OPERATION_DELETE;
+            event.outcome = removed != null ? PipelineEvent.OUTCOME_OK : PipelineEvent.OUTCOME_SKIPPED;
+            event.commit();
+        }
     }
 
     @Override
@@ -0,0 +1,142 @@
+package com.nju.comment.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁的延迟直方图。
+ * <p>
+ * 以微秒为单位按对数-线性分桶：每个 2 的幂区间再等分为 {@value #SUB_BUCKETS} 个子桶，8 微秒以下每微秒一个桶。
+ * 记录开销为常数，分位数取所在桶的上界，相对误差不超过 1/{@value #SUB_BUCKETS}。
+ * 统计自创建起累计，近期分布见 {@link WindowedLatencyHistogram}。
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // 覆盖到 2^40 微秒（约 12 天），更大的值计入最后一个桶
+    private static final int MAX_EXPONENT = 40;
+    static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * 记录一次耗时
+     *
+     * @param nanos 耗时（纳秒），负数按 0 处理
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        buckets.incrementAndGet(bucketOf(TimeUnit.NANOSECONDS.toMicros(value)));
+        count.increment();
+        totalNanos.add(value);
+        maxNanos.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * 记录从 startNanos 到当前的耗时
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * 获取当前统计快照
+     */
+    public Snapshot snapshot() {
+        long[] counts = bucketCounts();
+        long total = sum(counts);
+        long sumNanos = totalNanos.sum();
+        return new Snapshot(total,
+                total == 0 ? 0D : sumNanos / 1_000_000D / total,
+                percentileMillis(counts, total, 0.50),
+                percentileMillis(counts, total, 0.95),
+                percentileMillis(counts, total, 0.99),
+                maxNanos.get() / 1_000_000D);
+    }
+
+    /**
+     * 直方图中的近似分位数（毫秒）
+     */
+    public double percentileMillis(double quantile) {
+        long[] counts = bucketCounts();
+        return percentileMillis(counts, sum(counts), quantile);
+    }
+
+    /**
+     * 各桶计数的副本，下标含义见 {@link #bucketOf(long)}
+     */
+    long[] bucketCounts() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return counts;
+    }
+
+    /**
+     * 微秒值所在的桶：8 微秒以下直接以值为下标，其余按最高位所在的 2 的幂分组、次高 3 位定位子桶
+     */
+    static int bucketOf(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent >= MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return ((exponent - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) + subBucket;
+    }
+
+    /**
+     * 桶的上界（不含），单位微秒
+     */
+    static long upperBoundMicros(int bucket) {
+        int group = bucket >>> SUB_BUCKET_BITS;
+        int subBucket = bucket & (SUB_BUCKETS - 1);
+        if (group == 0) {
+            return subBucket + 1L;
+        }
+        long width = 1L << (group - 1);
+        return (SUB_BUCKETS + subBucket) * width + width;
+    }
+
+    static long sum(long[] counts) {
+        long total = 0;
+        for (long c : counts) {
+            total += c;
+        }
+        return total;
+    }
+
+    static double percentileMillis(long[] counts, long total, double quantile) {
+        if (total == 0) {
+            return 0D;
+        }
+        long rank = Math.max(1L, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return upperBoundMicros(i) / 1_000D;
+            }
+        }
+        return upperBoundMicros(counts.length - 1) / 1_000D;
+    }
+
+    public record Snapshot(long count, double meanMillis, double p50Millis, double p95Millis,
+                           double p99Millis, double maxMillis) {
+
+        @Override
+        public String toString() {
+            return "count=%d, mean=%.2fms, p50≤%.2fms, p95≤%.2fms, p99≤%.2fms, max=%.2fms"
+                    .formatted(count, meanMillis, p50Millis, p95Millis, p99Millis, maxMillis);
+        }
+    }
+}
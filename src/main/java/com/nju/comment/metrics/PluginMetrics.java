@@ -0,0 +1,208 @@
+package com.nju.comment.metrics;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 插件运行指标注册表，进程内单例。
+ * <p>
+ * 提供三类指标：计数器（单调递增）、仪表（当前值，可由回调提供或增减维护）、延迟直方图。
+ * 所有记录操作均为无锁实现，可在扫描、校验、网络回调等热路径上直接调用。
+ * 带维度的指标使用 {@link #tagged(String, String)} 生成名称，如 backend.latency[gpt-4o]。
+ */
+public final class PluginMetrics {
+
+    // 扫描
+    public static final String SCAN_DURATION = "scan.duration";
+    public static final String SCAN_COLLECT_DURATION = "scan.collect.duration";
+    public static final String SCAN_READ_LOCK = "scan.readLock";
+    public static final String SCAN_FILES = "scan.files";
+    public static final String SCAN_METHODS = "scan.methods";
+    public static final String SCAN_RUNS = "scan.runs";
+    public static final String SCAN_DEFERRED_FILES = "scan.deferredFiles";
+    public static final String SCAN_PAUSED = "scan.paused";
+    public static final String SCAN_JOINED = "scan.joined";
+    public static final String SCAN_CANCELLED = "scan.cancelled";
+
+    // 校验
+    public static final String VALIDATION_CHECK = "validation.check";
+    public static final String VALIDATION_FAILED = "validation.failed";
+    public static final String VALIDATION_SYNTACTIC_CACHE_HITS = "validation.syntacticCache.hits";
+    public static final String VALIDATION_SYNTACTIC_CACHE_MISSES = "validation.syntacticCache.misses";
+    public static final String VALIDATION_SEMANTIC_CACHE_HITS = "validation.semanticCache.hits";
+    public static final String VALIDATION_SEMANTIC_CACHE_MISSES = "validation.semanticCache.misses";
+
+    // 状态机
+    public static final String STATE_TRANSITIONS = "state.transitions";
+
+    // 队列
+    public static final String QUEUE_REFRESH_PENDING = "queue.refresh.pending";
+    public static final String QUEUE_IN_FLIGHT = "queue.inFlight";
+    public static final String QUEUE_DEBOUNCE_PENDING = "queue.debounce.pending";
+    public static final String QUEUE_HTTP_PERMITS_IN_USE = "queue.http.permitsInUse";
+    public static final String QUEUE_CPU_BUDGET_PENDING = "queue.cpuBudget.pending";
+
+    // CPU 预算
+    public static final String CPU_BUDGET_UTILIZATION = "cpuBudget.utilizationPct";
+    public static final String CPU_BUDGET_LIMIT = "cpuBudget.limitPct";
+    public static final String CPU_BUDGET_THROTTLED = "cpuBudget.throttled";
+
+    // 后端
+    public static final String BACKEND_LATENCY = "backend.latency";
+    public static final String BACKEND_SUCCESS = "backend.success";
+    public static final String BACKEND_FAILURE = "backend.failure";
+    public static final String BACKEND_CANCELLED = "backend.cancelled";
+    public static final String CANCELLATIONS = "client.cancellations";
+    public static final String CANCEL_SENT = "client.cancel.sent";
+    public static final String CANCEL_BATCHES = "client.cancel.batches";
+    public static final String CANCEL_DROPPED = "client.cancel.dropped";
+    public static final String DEDUP_HITS = "client.dedupHits";
+    public static final String DEBOUNCE_DEFERRED = "client.debounce.deferred";
+    public static final String DEBOUNCE_SUPERSEDED = "client.debounce.superseded";
+    public static final String ROUTER_ROUTED = "router.routed";
+    public static final String ROUTER_P90 = "router.p90Ms";
+    public static final String SUCCESS_FIRST_ATTEMPT = "client.success.firstAttempt";
+    public static final String SUCCESS_RETRIED = "client.success.retried";
+    public static final String RETRIES = "client.retries";
+    public static final String RETRY_BUDGET_EXHAUSTED = "client.retryBudget.exhausted";
+    public static final String RETRY_BUDGET_TOKENS = "client.retryBudget.tokens";
+    public static final String CIRCUIT_STATE = "client.circuit.state";
+    public static final String CIRCUIT_OPENED = "client.circuit.opened";
+    public static final String CIRCUIT_REJECTED = "client.circuit.rejected";
+    public static final String HEDGE_SENT = "client.hedge.sent";
+    public static final String HEDGE_WON = "client.hedge.won";
+    public static final String ENDPOINT_OUTSTANDING = "client.endpoint.outstanding";
+    public static final String ENDPOINT_LATENCY_EWMA = "client.endpoint.latencyEwmaMs";
+
+    // 请求负载
+    public static final String PAYLOAD_FULL_REQUESTS = "payload.full.requests";
+    public static final String PAYLOAD_DIFF_REQUESTS = "payload.diff.requests";
+    public static final String PAYLOAD_DIFF_BYTES_SAVED = "payload.diff.bytesSaved";
+    public static final String PAYLOAD_GZIP_REQUESTS = "payload.gzip.requests";
+    public static final String PAYLOAD_GZIP_BYTES_SAVED = "payload.gzip.bytesSaved";
+    public static final String PAYLOAD_GZIP_RESPONSES = "payload.gzip.responses";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> levels = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    private PluginMetrics() {
+    }
+
+    public static PluginMetrics getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    private static class Holder {
+        private static final PluginMetrics INSTANCE = new PluginMetrics();
+    }
+
+    /**
+     * 生成带维度的指标名
+     */
+    public static String tagged(String name, String tag) {
+        return name + "[" + tag + "]";
+    }
+
+    /**
+     * 计数器加一
+     */
+    public void increment(String name) {
+        counter(name).increment();
+    }
+
+    /**
+     * 计数器累加
+     */
+    public void add(String name, long delta) {
+        counter(name).add(delta);
+    }
+
+    /**
+     * 调整由调用方维护的仪表值（如队列深度），入队 +1、出队 -1
+     */
+    public void adjust(String name, long delta) {
+        levels.computeIfAbsent(name, k -> new LongAdder()).add(delta);
+    }
+
+    /**
+     * 注册回调式仪表，同名注册会覆盖旧回调
+     */
+    public void registerGauge(String name, LongSupplier supplier) {
+        gauges.put(name, supplier);
+    }
+
+    /**
+     * 获取（必要时创建）延迟直方图
+     */
+    public LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, k -> new LatencyHistogram());
+    }
+
+    /**
+     * 记录从 startNanos 到当前的耗时
+     */
+    public void recordSince(String name, long startNanos) {
+        histogram(name).recordSince(startNanos);
+    }
+
+    /**
+     * 读取计数器当前值，不存在时为 0
+     */
+    public long count(String name) {
+        LongAdder adder = counters.get(name);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    /**
+     * 获取所有指标的快照，名称按字典序排列
+     */
+    public Snapshot snapshot() {
+        Map<String, Long> counterValues = new TreeMap<>();
+        counters.forEach((name, adder) -> counterValues.put(name, adder.sum()));
+
+        Map<String, Long> gaugeValues = new TreeMap<>();
+        levels.forEach((name, adder) -> gaugeValues.put(name, adder.sum()));
+        gauges.forEach((name, supplier) -> gaugeValues.put(name, supplier.getAsLong()));
+
+        Map<String, LatencyHistogram.Snapshot> histogramValues = new TreeMap<>();
+        histograms.forEach((name, histogram) -> histogramValues.put(name, histogram.snapshot()));
+
+        return new Snapshot(System.currentTimeMillis(), counterValues, gaugeValues, histogramValues);
+    }
+
+    /**
+     * 以 JSON 导出当前快照
+     */
+    public String toJson() throws JsonProcessingException {
+        return MAPPER.writeValueAsString(snapshot());
+    }
+
+    /**
+     * 清零计数器与直方图，回调式仪表与队列深度保持不变
+     */
+    public void reset() {
+        counters.clear();
+        histograms.clear();
+    }
+
+    private LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, k -> new LongAdder());
+    }
+
+    public record Snapshot(long timestamp,
+                           Map<String, Long> counters,
+                           Map<String, Long> gauges,
+                           Map<String, LatencyHistogram.Snapshot> histograms) {
+    }
+}
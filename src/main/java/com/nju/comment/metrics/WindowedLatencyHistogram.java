@@ -0,0 +1,81 @@
+package com.nju.comment.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * 只反映近期样本的延迟直方图，分桶方式与 {@link LatencyHistogram} 相同。
+ * <p>
+ * 内部维护当前与上一个两个统计窗口，每过一个窗口轮换一次并丢弃更早的样本；
+ * 分位数按两个窗口合并计算，因此统计范围始终在一到两个窗口之间，后端变快或变慢后至多两个窗口即可反映出来。
+ */
+public final class WindowedLatencyHistogram {
+
+    private final long windowNanos;
+    private final LongSupplier nanoClock;
+
+    // 以下字段的替换由 this 保护，读取无需加锁
+    private volatile LatencyHistogram current = new LatencyHistogram();
+    private volatile LatencyHistogram previous = new LatencyHistogram();
+    private volatile long windowStartNanos;
+
+    public WindowedLatencyHistogram(long windowMillis) {
+        this(windowMillis, System::nanoTime);
+    }
+
+    WindowedLatencyHistogram(long windowMillis, LongSupplier nanoClock) {
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.nanoClock = nanoClock;
+        this.windowStartNanos = nanoClock.getAsLong();
+    }
+
+    /**
+     * 记录一次耗时
+     *
+     * @param nanos 耗时（纳秒），负数按 0 处理
+     */
+    public void record(long nanos) {
+        rotateIfNeeded();
+        current.record(nanos);
+    }
+
+    /**
+     * 最近一到两个窗口内的样本数
+     */
+    public long count() {
+        rotateIfNeeded();
+        return LatencyHistogram.sum(current.bucketCounts()) + LatencyHistogram.sum(previous.bucketCounts());
+    }
+
+    /**
+     * 最近一到两个窗口内的近似分位数（毫秒）
+     */
+    public double percentileMillis(double quantile) {
+        rotateIfNeeded();
+        long[] counts = current.bucketCounts();
+        long[] older = previous.bucketCounts();
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += older[i];
+        }
+        return LatencyHistogram.percentileMillis(counts, LatencyHistogram.sum(counts), quantile);
+    }
+
+    private void rotateIfNeeded() {
+        if (nanoClock.getAsLong() - windowStartNanos < windowNanos) {
+            return;
+        }
+        synchronized (this) {
+            long now = nanoClock.getAsLong();
+            long elapsed = now - windowStartNanos;
+            if (elapsed >= 2 * windowNanos) {
+                previous = new LatencyHistogram();
+                current = new LatencyHistogram();
+                windowStartNanos = now;
+            } else if (elapsed >= windowNanos) {
+                previous = current;
+                current = new LatencyHistogram();
+                windowStartNanos += windowNanos;
+            }
+        }
+    }
+}
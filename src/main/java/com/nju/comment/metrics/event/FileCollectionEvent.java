@@ -0,0 +1,17 @@
+package com.nju.comment.metrics.event;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.nju.comment.FileCollection")
+@Label("File Collection")
+@Description("Collect Java files and methods of the project for a refresh pass")
+public class FileCollectionEvent extends PipelineEvent {
+
+    @Label("Files")
+    public int files;
+
+    @Label("Methods")
+    public int methods;
+}
@@ -0,0 +1,17 @@
+package com.nju.comment.metrics.event;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.nju.comment.HttpExchange")
+@Label("HTTP Exchange")
+@Description("Comment generation request from dispatch until the response is handled")
+public class HttpExchangeEvent extends PipelineEvent {
+
+    @Label("Request Id")
+    public String requestId;
+
+    @Label("Model")
+    public String model;
+}
@@ -0,0 +1,38 @@
+package com.nju.comment.metrics.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * 刷新流水线各阶段 JFR 事件的公共基类，携带方法键、文件与结果，耗时由 JFR 自动记录。
+ * <p>
+ * 使用方式：创建事件后立即 begin()，阶段结束时仅在 shouldCommit() 为真时填充字段并 commit()。
+ * 未开启录制时 shouldCommit() 恒为假，字段填充与字符串拼接均被跳过，开销可忽略。
+ */
+@Category({"Comment Consistency", "Pipeline"})
+@Enabled
+@StackTrace(false)
+@Threshold("0 ms")
+public abstract class PipelineEvent extends Event {
+
+    public static final String OUTCOME_OK = "ok";
+    public static final String OUTCOME_INVALID = "invalid";
+    public static final String OUTCOME_SKIPPED = "skipped";
+    public static final String OUTCOME_FAILED = "failed";
+    public static final String OUTCOME_CANCELLED = "cancelled";
+
+    @Label("Method Key")
+    public String methodKey;
+
+    @Label("File")
+    public String file;
+
+    @Label("Outcome")
+    @Description("ok / invalid / skipped / failed / cancelled")
+    public String outcome;
+}
@@ -0,0 +1,11 @@
+package com.nju.comment.metrics.event;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.nju.comment.PsiExtraction")
+@Label("PSI Extraction")
+@Description("Extract method key, signature, text and doc comment from PSI")
+public class PsiExtractionEvent extends PipelineEvent {
+}
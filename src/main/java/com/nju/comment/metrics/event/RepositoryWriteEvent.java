@@ -0,0 +1,17 @@
+package com.nju.comment.metrics.event;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.nju.comment.RepositoryWrite")
+@Label("Repository Write")
+@Description("Save or delete a method history record")
+public class RepositoryWriteEvent extends PipelineEvent {
+
+    public static final String OPERATION_SAVE = "save";
+    public static final String OPERATION_DELETE = "delete";
+
+    @Label("Operation")
+    public String operation;
+}
@@ -0,0 +1,14 @@
+package com.nju.comment.metrics.event;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.nju.comment.StateEvaluation")
+@Label("State Evaluation")
+@Description("Evaluate the method state machine")
+public class StateEvaluationEvent extends PipelineEvent {
+
+    @Label("State")
+    public String state;
+}
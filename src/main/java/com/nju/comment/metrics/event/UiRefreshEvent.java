@@ -0,0 +1,14 @@
+package com.nju.comment.metrics.event;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.nju.comment.UiRefresh")
+@Label("UI Refresh")
+@Description("Rebuild the staged comment cards in the tool window")
+public class UiRefreshEvent extends PipelineEvent {
+
+    @Label("Cards")
+    public int cards;
+}
@@ -0,0 +1,17 @@
+package com.nju.comment.metrics.event;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.nju.comment.Validation")
+@Label("Method Validation")
+@Description("Uncached syntactic or semantic validation of a method")
+public class ValidationEvent extends PipelineEvent {
+
+    public static final String TIER_SYNTACTIC = "syntactic";
+    public static final String TIER_SEMANTIC = "semantic";
+
+    @Label("Tier")
+    public String tier;
+}
@@ -0,0 +1,225 @@
+package com.nju.comment.service;
+
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.nju.comment.constant.Constant;
+import com.nju.comment.metrics.PluginMetrics;
+import com.nju.comment.settings.PluginSettings;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * 后台刷新任务的 CPU 预算调度器，进程内单例，所有项目共享同一份预算。
+ * <p>
+ * 令牌桶以 CPU 纳秒计：按「预算核数 × 墙钟时间」的速率补充，容量为一个统计窗口内的预算，
+ * 因此任意窗口内后台任务的平均 CPU 占用不超过预算。任务派发前按近期单任务平均 CPU 耗时预扣令牌，
+ * 结束后按线程实测 CPU 时间多退少补；令牌耗尽时任务留在队列中，补足后再派发。
+ * 预算来自 {@link PluginSettings}，修改设置后立即生效。
+ * <p>
+ * 交互式请求（用户对单个方法或单个文件的操作）不经过本调度器；用户触发的全量刷新（Update All）的任务标记为豁免，
+ * 排到队首时不受令牌限制，但其 CPU 耗时照常计入，豁免任务结束后后台任务需等令牌补回才继续。
+ */
+public final class CpuBudgetScheduler implements Executor {
+
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+    private static final double INITIAL_TASK_ESTIMATE_NANOS = 1_000_000D;
+    private static final double TASK_ESTIMATE_ALPHA = 0.2;
+
+    private final Executor delegate;
+    private final ObjLongConsumer<Runnable> timer;
+    private final LongSupplier wallClock;
+    private final LongSupplier cpuClock;
+    private final long windowNanos;
+    private final Queue<QueuedTask> queue = new ConcurrentLinkedQueue<>();
+    private final PluginMetrics metrics = PluginMetrics.getInstance();
+
+    // 以下字段由 this 保护
+    private double budgetCores;
+    private double capacityNanos;
+    private double tokens;
+    private long lastRefillNanos;
+    private double taskEstimateNanos = INITIAL_TASK_ESTIMATE_NANOS;
+    private boolean drainScheduled;
+    private long windowStartNanos;
+    private long currentWindowCpuNanos;
+    private long previousWindowCpuNanos;
+
+    CpuBudgetScheduler(Executor delegate, double budgetCores, long windowMillis) {
+        this(delegate,
+                (task, delayNanos) -> AppExecutorUtil.getAppScheduledExecutorService()
+                        .schedule(task, delayNanos, TimeUnit.NANOSECONDS),
+                System::nanoTime,
+                // 不支持线程 CPU 计时的 JVM 退化为按墙钟时间计，结果偏保守
+                THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() ? THREAD_MX_BEAN::getCurrentThreadCpuTime : System::nanoTime,
+                budgetCores, windowMillis);
+    }
+
+    /**
+     * @param timer     延迟执行：在给定纳秒后运行任务
+     * @param wallClock 墙钟，纳秒
+     * @param cpuClock  当前线程已用 CPU 时间，纳秒
+     */
+    CpuBudgetScheduler(Executor delegate, ObjLongConsumer<Runnable> timer, LongSupplier wallClock,
+                       LongSupplier cpuClock, double budgetCores, long windowMillis) {
+        this.delegate = delegate;
+        this.timer = timer;
+        this.wallClock = wallClock;
+        this.cpuClock = cpuClock;
+        this.budgetCores = budgetCores;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.capacityNanos = budgetCores * windowNanos;
+        this.tokens = capacityNanos;
+        this.lastRefillNanos = wallClock.getAsLong();
+        this.windowStartNanos = lastRefillNanos;
+    }
+
+    public static CpuBudgetScheduler getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    private static class Holder {
+        private static final CpuBudgetScheduler INSTANCE = create();
+
+        private static CpuBudgetScheduler create() {
+            CpuBudgetScheduler scheduler = new CpuBudgetScheduler(
+                    AppExecutorUtil.createBoundedApplicationPoolExecutor("Comment Refresh", Constant.BACKGROUND_REFRESH_PARALLELISM),
+                    PluginSettings.getInstance().getBackgroundCpuBudgetPercent() / 100D, Constant.BACKGROUND_CPU_WINDOW_MS);
+            PluginMetrics metrics = PluginMetrics.getInstance();
+            metrics.registerGauge(PluginMetrics.CPU_BUDGET_UTILIZATION, scheduler::utilizationPercent);
+            metrics.registerGauge(PluginMetrics.CPU_BUDGET_LIMIT, scheduler::budgetPercent);
+            return scheduler;
+        }
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        execute(task, () -> false);
+    }
+
+    /**
+     * 提交任务
+     *
+     * @param exempt 排到队首时是否豁免预算限制，派发时求值，因此提交后仍可改为豁免
+     */
+    public void execute(Runnable task, BooleanSupplier exempt) {
+        queue.add(new QueuedTask(task, exempt));
+        metrics.adjust(PluginMetrics.QUEUE_CPU_BUDGET_PENDING, 1);
+        drain();
+    }
+
+    /**
+     * 修改 CPU 预算，单位为单核的百分比；已积累的令牌不超过新的容量
+     */
+    public void setBudgetPercent(int percent) {
+        synchronized (this) {
+            refill(wallClock.getAsLong());
+            budgetCores = percent / 100D;
+            capacityNanos = budgetCores * windowNanos;
+            tokens = Math.min(tokens, capacityNanos);
+        }
+        drain();
+    }
+
+    /**
+     * 在令牌允许的范围内派发排队任务，豁免任务排到队首时直接派发；令牌不足时按欠额计算补足时间，定时再派发。
+     * 队列只在持有 this 时出队，先 peek 再 poll 取到的是同一个任务
+     */
+    void drain() {
+        long delayNanos;
+        synchronized (this) {
+            refill(wallClock.getAsLong());
+            while (true) {
+                QueuedTask next = queue.peek();
+                if (next == null) {
+                    return;
+                }
+                if (tokens <= 0 && !next.exempt().getAsBoolean()) {
+                    break;
+                }
+                queue.poll();
+                metrics.adjust(PluginMetrics.QUEUE_CPU_BUDGET_PENDING, -1);
+                double reserved = taskEstimateNanos;
+                tokens -= reserved;
+                delegate.execute(() -> runMeasured(next.task(), reserved));
+            }
+            if (queue.isEmpty() || drainScheduled) {
+                return;
+            }
+            drainScheduled = true;
+            delayNanos = (long) Math.ceil(-tokens / budgetCores) + 1;
+        }
+        metrics.increment(PluginMetrics.CPU_BUDGET_THROTTLED);
+        timer.accept(() -> {
+            synchronized (this) {
+                drainScheduled = false;
+            }
+            drain();
+        }, delayNanos);
+    }
+
+    private void runMeasured(Runnable task, double reserved) {
+        long start = cpuClock.getAsLong();
+        try {
+            task.run();
+        } finally {
+            settle(reserved, Math.max(0L, cpuClock.getAsLong() - start));
+            drain();
+        }
+    }
+
+    /**
+     * 按实测 CPU 时间结算预扣的令牌，并更新单任务耗时估计与利用率统计
+     */
+    private synchronized void settle(double reserved, long usedNanos) {
+        tokens += reserved - usedNanos;
+        taskEstimateNanos += TASK_ESTIMATE_ALPHA * (usedNanos - taskEstimateNanos);
+        rollWindow(wallClock.getAsLong());
+        currentWindowCpuNanos += usedNanos;
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(capacityNanos, tokens + (now - lastRefillNanos) * budgetCores);
+        lastRefillNanos = now;
+    }
+
+    private void rollWindow(long now) {
+        long elapsed = now - windowStartNanos;
+        if (elapsed >= 2 * windowNanos) {
+            previousWindowCpuNanos = 0;
+            currentWindowCpuNanos = 0;
+            windowStartNanos = now;
+        } else if (elapsed >= windowNanos) {
+            previousWindowCpuNanos = currentWindowCpuNanos;
+            currentWindowCpuNanos = 0;
+            windowStartNanos += windowNanos;
+        }
+    }
+
+    /**
+     * 最近一个统计窗口内后台任务的平均 CPU 占用，单位为单核的百分比
+     */
+    public synchronized long utilizationPercent() {
+        long now = wallClock.getAsLong();
+        rollWindow(now);
+        double previousWeight = (double) (windowNanos - (now - windowStartNanos)) / windowNanos;
+        double cpuNanos = previousWindowCpuNanos * Math.max(0D, previousWeight) + currentWindowCpuNanos;
+        return Math.round(cpuNanos * 100D / windowNanos);
+    }
+
+    /**
+     * CPU 预算，单位为单核的百分比
+     */
+    public synchronized long budgetPercent() {
+        return Math.round(budgetCores * 100D);
+    }
+
+    private record QueuedTask(Runnable task, BooleanSupplier exempt) {
+    }
+}
@@ -1,32 +1,55 @@
 package com.nju.comment.service;
 
+import com.intellij.ide.PowerSaveMode;
 import com.intellij.openapi.Disposable;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.components.Service;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.DumbService;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.TextRange;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.*;
 import com.intellij.psi.search.FilenameIndex;
 import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import com.nju.comment.client.global.CommentGeneratorClient;
 import com.nju.comment.constant.Constant;
 import com.nju.comment.dto.GenerateOptions;
 import com.nju.comment.dto.MethodStatus;
 import com.nju.comment.history.MethodHistoryManager;
 import com.nju.comment.history.MethodHistoryRepositoryImpl;
+import com.nju.comment.metrics.PluginMetrics;
+import com.nju.comment.metrics.event.FileCollectionEvent;
+import com.nju.comment.metrics.event.PipelineEvent;
+import com.nju.comment.trace.TraceContext;
+import com.nju.comment.trace.TraceRecorder;
 import com.nju.comment.util.TextProcessUtil;
 import com.nju.comment.util.MethodRecordUtil;
 import com.nju.comment.dto.MethodRecord;
 import com.nju.comment.util.MethodValidationUtil;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 @Slf4j
 @Service(Service.Level.PROJECT)
@@ -40,9 +63,32 @@ public final class PluginProjectService implements Disposable {
     @Getter
     private final CompletableFuture<Void> initializationFuture = new CompletableFuture<>();
 
+    @Getter
+    private final ScanStatistics scanStatistics = new ScanStatistics();
+
+    private final PluginMetrics metrics = PluginMetrics.getInstance();
+
+    private final TypingActivityTracker typingTracker;
+    private final Set<VirtualFile> deferredFiles = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 后台刷新任务的执行器，受 CPU 预算约束；交互式刷新不经过它，用户触发的全量刷新豁免预算
+     */
+    private final CpuBudgetScheduler refreshExecutor = CpuBudgetScheduler.getInstance();
+    private final AtomicBoolean catchUpPending = new AtomicBoolean();
+    private final AtomicReference<ScanRun> currentScan = new AtomicReference<>();
+
     public PluginProjectService(Project project) {
         this.project = project;
         this.methodHistoryManager = new MethodHistoryManager(MethodHistoryRepositoryImpl.getInstance());
+        this.typingTracker = new TypingActivityTracker(Constant.TYPING_IDLE_MS, this);
+        ApplicationManager.getApplication().getMessageBus().connect(this)
+                .subscribe(PowerSaveMode.TOPIC, new PowerSaveMode.Listener() {
+                    @Override
+                    public void powerSaveStateChanged() {
+                        resumeBackground();
+                    }
+                });
     }
 
     /**
@@ -58,62 +104,376 @@ public final class PluginProjectService implements Disposable {
     }
 
     /**
-     * 刷新项目中所有方法历史记录
+     * 后台触发的全量刷新（自动更新、工具窗口打开），省电模式下暂停，关闭省电模式后补扫一次
+     *
+     * @return 所有方法刷新完成（不含异步注释生成）时完成的 Future
+     */
+    public CompletableFuture<Void> autoRefreshAllMethodHistories() {
+        if (PowerSaveMode.isEnabled()) {
+            pauseBackground("powerSave");
+            return CompletableFuture.completedFuture(null);
+        }
+        return refreshAllMethodHistories();
+    }
+
+    /**
+     * 刷新项目中所有方法历史记录。索引构建期间（dumb mode）不执行，索引就绪后补扫一次；
+     * 同一时间只运行一次全量扫描，已有扫描在运行时直接沿用
+     *
+     * @return 所有方法刷新完成（不含异步注释生成）时完成的 Future
+     */
+    public CompletableFuture<Void> refreshAllMethodHistories() {
+        if (DumbService.isDumb(project)) {
+            pauseBackground("dumb");
+            return CompletableFuture.completedFuture(null);
+        }
+        return startScan().getDone();
+    }
+
+    /**
+     * 用户触发的全量刷新，以可取消的后台任务展示进度：文件进度、每秒处理方法数、未完成的后端请求数。
+     * 已有扫描在运行时不另起扫描，改为展示该扫描的进度
      */
-    public void refreshAllMethodHistories() {
-        ApplicationManager.getApplication().executeOnPooledThread(this::doRefreshAllMethodHistories);
+    public void refreshAllMethodHistoriesWithProgress() {
+        if (DumbService.isDumb(project)) {
+            pauseBackground("dumb");
+            return;
+        }
+        ScanRun run = startScan();
+        // 沿用的后台扫描中尚未执行的方法也按显式请求发送，并不再受 CPU 预算限制
+        run.markExplicit();
+        refreshExecutor.drain();
+        if (!run.markProgressShown()) {
+            return;
+        }
+        new Task.Backgroundable(project, "Updating method comments", true) {
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                trackProgress(run, indicator);
+            }
+        }.queue();
     }
 
     /**
-     * 刷新项目中所有方法历史记录的具体实现
+     * 取消正在运行的全量扫描，没有扫描时不做任何事
      */
-    private void doRefreshAllMethodHistories() {
+    public void cancelRunningScan() {
+        ScanRun run = currentScan.get();
+        if (run != null) {
+            run.cancel();
+        }
+    }
+
+    private ScanRun startScan() {
+        while (true) {
+            ScanRun running = currentScan.get();
+            if (running != null && !running.isCancelled()) {
+                metrics.increment(PluginMetrics.SCAN_JOINED);
+                return running;
+            }
+            // 已取消的扫描只剩尚未结束的单方法刷新，不必等它退出
+            ScanRun run = new ScanRun();
+            if (currentScan.compareAndSet(running, run)) {
+                AppExecutorUtil.getAppExecutorService().execute(() -> runScan(run));
+                return run;
+            }
+        }
+    }
+
+    private void runScan(ScanRun run) {
+        CompletableFuture<Void> tasks;
+        try {
+            tasks = doRefreshAllMethodHistories(run);
+        } catch (RuntimeException e) {
+            tasks = CompletableFuture.failedFuture(e);
+        }
+        tasks.whenComplete((r, ex) -> {
+            currentScan.compareAndSet(run, null);
+            metrics.recordSince(PluginMetrics.SCAN_DURATION, run.getStartNanos());
+            if (run.isCancelled()) {
+                metrics.increment(PluginMetrics.SCAN_CANCELLED);
+                log.info("全量刷新已取消，已完成方法数：{}/{}", run.getMethodsDone(), run.getMethodsSubmitted());
+            }
+            if (ex != null) {
+                log.warn("全量刷新失败", ex);
+                run.getDone().completeExceptionally(ex);
+            } else {
+                run.getDone().complete(null);
+            }
+        });
+    }
+
+    /**
+     * 在进度条中展示扫描进度，直到扫描结束；用户取消进度条即取消扫描
+     */
+    private void trackProgress(ScanRun run, ProgressIndicator indicator) {
+        indicator.setIndeterminate(false);
+        while (!run.getDone().isDone()) {
+            if (indicator.isCanceled()) {
+                log.info("用户取消全量刷新");
+                run.cancel();
+                return;
+            }
+            int methodsDone = run.getMethodsDone();
+            int methodsSubmitted = run.getMethodsSubmitted();
+            indicator.setText(String.format("Files %d / %d, methods %d / %d",
+                    run.getFilesDone(), run.getTotalFiles(), methodsDone, methodsSubmitted));
+            indicator.setText2(String.format("%.1f methods/s, %d pending backend requests",
+                    run.methodsPerSecond(), CommentGeneratorClient.getPendingRequestCount()));
+            if (run.isCollecting()) {
+                indicator.setFraction(run.getTotalFiles() == 0 ? 0D : (double) run.getFilesDone() / run.getTotalFiles());
+            } else {
+                indicator.setFraction(methodsSubmitted == 0 ? 1D : (double) methodsDone / methodsSubmitted);
+            }
+            try {
+                run.getDone().get(Constant.SCAN_PROGRESS_REFRESH_DELAY_MS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException ignored) {
+                // 继续刷新进度
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 刷新项目中所有方法历史记录的具体实现。方法边收集边提交，
+     * 按用户关注程度排序：当前编辑器可见区域、当前文件其余部分、打开的标签页、最近编辑的文件、项目其余文件
+     */
+    private CompletableFuture<Void> doRefreshAllMethodHistories(ScanRun run) {
         log.info("刷新项目中所有方法历史记录");
-        List<PsiMethod> methods = collectAllMethods(project);
-        log.info("共找到方法数量：{}", methods.size());
+        metrics.increment(PluginMetrics.SCAN_RUNS);
+        ScanFocus focus = ScanFocus.capture(project);
+        List<CompletableFuture<?>> tasks = new ArrayList<>();
+        collectMethods(project, focus, run, method -> tasks.add(submitRefresh(method, run)));
+        run.collectionFinished();
+        metrics.recordSince(PluginMetrics.SCAN_COLLECT_DURATION, run.getStartNanos());
+        log.info("共找到方法数量：{}", tasks.size());
+        log.info("语法校验缓存统计：{}", MethodValidationUtil.getSyntacticCache());
+        log.info("语义校验缓存统计：{}", MethodValidationUtil.getSemanticCache());
 
-        for (PsiMethod method : methods) {
-            ApplicationManager.getApplication()
-                    .executeOnPooledThread(() -> doRefreshMethodHistory(method));
+        return CompletableFuture.allOf(tasks.toArray(CompletableFuture<?>[]::new));
+    }
+
+    /**
+     * 提交单方法的后台刷新任务，任务按提交顺序在 CPU 预算内执行，用户触发的扫描不受预算限制；
+     * 扫描取消后尚未开始的任务直接跳过
+     */
+    private CompletableFuture<Void> submitRefresh(PsiMethod method, ScanRun run) {
+        run.methodSubmitted();
+        metrics.adjust(PluginMetrics.QUEUE_REFRESH_PENDING, 1);
+        return CompletableFuture.runAsync(() -> {
+            try {
+                if (run.isCancelled()) {
+                    return;
+                }
+                // 扫描途中进入索引构建：剩余方法不再校验，索引就绪后整体补扫
+                if (DumbService.isDumb(project)) {
+                    pauseBackground("dumb");
+                    return;
+                }
+                doRefreshMethodHistory(method, false, run.isExplicit(), run);
+            } finally {
+                run.methodDone();
+                metrics.adjust(PluginMetrics.QUEUE_REFRESH_PENDING, -1);
+            }
+        }, task -> refreshExecutor.execute(task, run::isExplicit));
+    }
+
+    /**
+     * 后台刷新是否应暂停：索引构建中或处于省电模式
+     */
+    public boolean isBackgroundPaused() {
+        return DumbService.isDumb(project) || PowerSaveMode.isEnabled();
+    }
+
+    /**
+     * 记录一次被暂停的后台刷新；暂停期间无论跳过多少次，恢复后只补扫一次
+     */
+    private void pauseBackground(String reason) {
+        metrics.increment(PluginMetrics.tagged(PluginMetrics.SCAN_PAUSED, reason));
+        if (catchUpPending.compareAndSet(false, true)) {
+            log.info("后台刷新暂停：{}，恢复后补扫一次", reason);
+            resumeBackground();
+        }
+    }
+
+    /**
+     * 暂停条件解除后执行补扫；仍在索引构建时等待索引就绪，仍处于省电模式时等待省电模式关闭的通知
+     */
+    private void resumeBackground() {
+        if (project.isDisposed() || !catchUpPending.get()) {
+            return;
         }
+        if (DumbService.isDumb(project)) {
+            DumbService.getInstance(project).runWhenSmart(this::resumeBackground);
+            return;
+        }
+        if (PowerSaveMode.isEnabled()) {
+            return;
+        }
+        if (!catchUpPending.compareAndSet(true, false)) {
+            return;
+        }
+        // 暂停期间仍在运行的扫描已跳过剩余方法，补扫不能沿用它，需等它结束后另起一次
+        ScanRun running = currentScan.get();
+        if (running == null || running.isCancelled()) {
+            log.info("后台刷新恢复，执行补扫");
+            refreshAllMethodHistories();
+            return;
+        }
+        log.info("后台刷新恢复，等待当前扫描结束后补扫");
+        running.getDone().whenComplete((r, ex) -> {
+            if (!project.isDisposed()) {
+                refreshAllMethodHistories();
+            }
+        });
     }
 
     /**
-     * 收集项目中所有方法
+     * 收集项目中所有方法，每个文件单独持有读锁，写操作（用户输入）可在文件之间插入
      *
      * @param project 当前项目
      * @return 方法列表
      */
     public List<PsiMethod> collectAllMethods(Project project) {
-        return ReadAction.compute(() -> {
-            List<PsiMethod> result = new ArrayList<>();
-            Collection<VirtualFile> files = FilenameIndex.getAllFilesByExt(project, "java", GlobalSearchScope.projectScope(project));
-            PsiManager psiManager = PsiManager.getInstance(project);
-            for (VirtualFile vf : files) {
-                PsiFile psiFile = psiManager.findFile(vf);
-                if (psiFile == null) continue;
-                Collection<PsiMethod> methods = PsiTreeUtil.collectElementsOfType(psiFile, PsiMethod.class);
-                result.addAll(methods);
+        List<PsiMethod> result = new ArrayList<>();
+        collectMethods(project, null, null, result::add);
+        return result;
+    }
+
+    /**
+     * @param focus 非空时为后台刷新扫描：先扫描关注文件，再扫描项目其余文件（按空闲时长从长到短）；
+     *              仍在输入中的文件推迟到空闲后再扫描
+     * @param run   所属的全量扫描，非空时汇报文件进度，取消后停止收集
+     * @param sink  按扫描顺序接收方法
+     */
+    private void collectMethods(Project project, ScanFocus focus, ScanRun run, Consumer<PsiMethod> sink) {
+        FileCollectionEvent event = new FileCollectionEvent();
+        event.begin();
+        GlobalSearchScope scope = GlobalSearchScope.projectScope(project);
+        PsiManager psiManager = PsiManager.getInstance(project);
+        Set<VirtualFile> visited = new HashSet<>();
+        int methodCount = 0;
+
+        if (focus != null) {
+            for (VirtualFile vf : focus.files()) {
+                if (run != null && run.isCancelled()) return;
+                if (!"java".equalsIgnoreCase(vf.getExtension()) || !visited.add(vf)) continue;
+                if (!ReadAction.compute(() -> vf.isValid() && scope.contains(vf))) continue;
+                if (!typingTracker.isIdle(vf)) {
+                    deferUntilIdle(vf);
+                    continue;
+                }
+                if (run != null) run.addTotalFiles(1);
+                methodCount += collectFileMethods(psiManager, vf, focus.visibleRangeOf(vf), sink);
+                if (run != null) run.fileDone();
+            }
+        }
+
+        Collection<VirtualFile> files = ReadAction.compute(() -> {
+            long start = System.nanoTime();
+            try {
+                return FilenameIndex.getAllFilesByExt(project, "java", scope);
+            } finally {
+                scanStatistics.recordReadLock(start);
             }
-            return result;
         });
+        Collection<VirtualFile> remaining = files;
+        if (focus != null) {
+            List<VirtualFile> busy = new ArrayList<>();
+            remaining = typingTracker.idleFirst(files.stream().filter(vf -> !visited.contains(vf)).toList(), busy);
+            busy.forEach(this::deferUntilIdle);
+            // 排序用完空闲时长后再清理，提前清理会让已停止输入的文件失去排序依据
+            typingTracker.prune();
+        }
+        if (run != null) run.addTotalFiles(remaining.size());
+        for (VirtualFile vf : remaining) {
+            if (run != null && run.isCancelled()) break;
+            visited.add(vf);
+            methodCount += collectFileMethods(psiManager, vf, null, sink);
+            if (run != null) run.fileDone();
+        }
+
+        scanStatistics.recordFiles(visited.size());
+        if (event.shouldCommit()) {
+            event.file = project.getBasePath();
+            event.files = visited.size();
+            event.methods = methodCount;
+            event.outcome = PipelineEvent.OUTCOME_OK;
+            event.commit();
+        }
     }
 
     /**
-     * 刷新单文件中所有方法历史记录
+     * 在单独的读操作内收集单个文件中的方法
+     *
+     * @param visibleRange 编辑器可见区域，非空时与之相交的方法排在最前
+     * @return 方法数量
+     */
+    private int collectFileMethods(PsiManager psiManager, VirtualFile vf, TextRange visibleRange, Consumer<PsiMethod> sink) {
+        List<PsiMethod> methods = ReadAction.compute(() -> {
+            long start = System.nanoTime();
+            try {
+                PsiFile psiFile = vf.isValid() ? psiManager.findFile(vf) : null;
+                if (psiFile == null) return List.of();
+                Collection<PsiMethod> coll = PsiTreeUtil.collectElementsOfType(psiFile, PsiMethod.class);
+                List<PsiMethod> ordered = new ArrayList<>(coll);
+                if (visibleRange != null) {
+                    ordered.sort(Comparator.comparing(m -> !visibleRange.intersects(m.getTextRange())));
+                }
+                return ordered;
+            } finally {
+                scanStatistics.recordReadLock(start);
+            }
+        });
+        methods.forEach(sink);
+        return methods.size();
+    }
+
+    /**
+     * 推迟扫描仍在输入中的文件，空闲后按单文件刷新；同一文件同时只保留一个待执行任务
+     */
+    private void deferUntilIdle(VirtualFile file) {
+        metrics.increment(PluginMetrics.SCAN_DEFERRED_FILES);
+        if (!deferredFiles.add(file)) {
+            return;
+        }
+        AppExecutorUtil.getAppScheduledExecutorService().schedule(() -> {
+            deferredFiles.remove(file);
+            if (project.isDisposed()) {
+                return;
+            }
+            if (DumbService.isDumb(project)) {
+                pauseBackground("dumb");
+            } else if (typingTracker.isIdle(file)) {
+                refreshExecutor.execute(() -> doRefreshFileMethodHistories(file, refreshExecutor, false));
+            } else {
+                deferUntilIdle(file);
+            }
+        }, typingTracker.remainingIdleMillis(file), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 刷新单文件中所有方法历史记录，由用户触发，生成请求不等待发送静默期
      *
      * @param file 目标文件
      */
     public void refreshFileMethodHistories(VirtualFile file) {
-        ApplicationManager.getApplication().executeOnPooledThread(() -> doRefreshFileMethodHistories(file));
+        Executor executor = AppExecutorUtil.getAppExecutorService();
+        executor.execute(() -> doRefreshFileMethodHistories(file, executor, true));
     }
 
     /**
      * 刷新单文件中所有方法历史记录的具体实现
      *
-     * @param file 目标文件
+     * @param file     目标文件
+     * @param executor 逐方法刷新使用的执行器
+     * @param explicit 是否由用户显式触发
      */
-    private void doRefreshFileMethodHistories(VirtualFile file) {
+    private void doRefreshFileMethodHistories(VirtualFile file, Executor executor, boolean explicit) {
         if (file == null || !file.exists() || !"java".equalsIgnoreCase(file.getExtension())) {
             log.warn("文件无效，无法刷新方法历史记录: {}", file);
             return;
@@ -131,44 +491,76 @@ public final class PluginProjectService implements Disposable {
         log.info("文件中找到方法数量：{}", methods.size());
 
         for (PsiMethod method : methods) {
-            ApplicationManager.getApplication()
-                    .executeOnPooledThread(() -> doRefreshMethodHistory(method));
+            executor.execute(() -> doRefreshMethodHistory(method, false, explicit, null));
         }
     }
 
     /**
-     * 刷新单方法历史记录
+     * 刷新单方法历史记录，由用户在编辑器中触发，按交互式请求生成注释
      *
      * @param method 目标方法
      */
     public void refreshMethodHistory(PsiMethod method) {
-        ApplicationManager.getApplication().executeOnPooledThread(() -> doRefreshMethodHistory(method));
+        ApplicationManager.getApplication().executeOnPooledThread(() -> doRefreshMethodHistory(method, true, true, null));
     }
 
     /**
      * 刷新单方法历史。自动周期更新与手动（项目/文件/方法）更新统一由此执行；
      * 同一方法下「重复触发以最初为准、修改后再触发以最近为准」由 CommentGeneratorClient 按内容指纹保证。
+     * 此处仅做语法层校验；语义层校验由 MethodHistoryManager 在状态机评估后、即将发起生成请求时执行，
+     * 未通过的方法不保存本次评估的记录，也不发起请求，新方法因此可能没有历史记录。
      */
     private void doRefreshMethodHistory(PsiMethod method) {
-        ReadAction.run(() -> {
-            if (!MethodValidationUtil.isValid(method)) return;
+        doRefreshMethodHistory(method, false, false, null);
+    }
 
-            String methodKey = MethodRecordUtil.buildMethodKey(method);
+    /**
+     * @param interactive 是否为用户对单个方法触发的交互式刷新
+     * @param explicit    是否由用户显式触发（单方法、单文件、Update All），显式请求不等待发送静默期
+     * @param scan        发起刷新的全量扫描，不是全量扫描时为 null
+     */
+    private void doRefreshMethodHistory(PsiMethod method, boolean interactive, boolean explicit, ScanRun scan) {
+        ReadAction.run(() -> {
+            long start = System.nanoTime();
             try {
-                GenerateOptions options = new GenerateOptions(CommentGeneratorClient.getSelectedModel());
-                methodHistoryManager.updateMethodHistoryAsync(method, (context, status) -> {
-                    // 使用异步回调方式生成注释，不阻塞UI线程
-                    CommentGeneratorClient.generateCommentAsync(methodKey, context, options, generatedComment -> {
-                        if (generatedComment == null) {
-                            return;
-                        }
-                        String processedComment = TextProcessUtil.processComment(generatedComment);
+                refreshMethodHistoryInReadAction(method, interactive, explicit, scan);
+            } finally {
+                scanStatistics.recordReadLock(start);
+            }
+        });
+    }
+
+    /**
+     * 在读操作内执行单方法刷新
+     */
+    private void refreshMethodHistoryInReadAction(PsiMethod method, boolean interactive, boolean explicit, ScanRun scan) {
+        scanStatistics.recordMethod();
+        if (!MethodValidationUtil.isSyntacticallyValid(method)) return;
+
+        String methodKey = MethodRecordUtil.buildMethodKey(method);
+        TraceContext trace = TraceContext.start(methodKey);
+        try (TraceContext.Scope ignored = trace.attach();
+             TraceRecorder.ActiveSpan span = TraceRecorder.getInstance().span("refreshMethod", "scan")) {
+            GenerateOptions options = new GenerateOptions(CommentGeneratorClient.getSelectedModel(), interactive, explicit);
+            methodHistoryManager.updateMethodHistoryAsync(method, (context, status) -> {
+                // 扫描已取消时不再发起请求，记录保持待生成状态，由下一次扫描重新发起
+                if (scan != null && !scan.trackGeneration(methodKey)) {
+                    return;
+                }
+                // 使用异步回调方式生成注释，不阻塞UI线程
+                CommentGeneratorClient.generateCommentAsync(methodKey, context, options, generatedComment -> {
+                    if (generatedComment == null) {
+                        return;
+                    }
+                    String processedComment = TextProcessUtil.processComment(generatedComment);
 
-                        // 在后台线程中更新历史记录
-                        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+                    // 在后台线程中更新历史记录
+                    ApplicationManager.getApplication().executeOnPooledThread(TraceContext.wrap(() -> {
+                        try (TraceRecorder.ActiveSpan saveSpan = TraceRecorder.getInstance().span("saveStagedComment", "callback")) {
                             MethodRecord record = methodHistoryManager.findByKey(methodKey);
                             if (record != null) {
                                 record.setStagedComment(processedComment);
+                                record.setTraceId(trace.getTraceId());
                                 if (status.equals(MethodStatus.TO_BE_UPDATE)) {
                                     // 更新为待更新状态
                                     record.setStatus(MethodStatus.TO_BE_UPDATE);
@@ -179,13 +571,13 @@ public final class PluginProjectService implements Disposable {
                                 record.touch();
                                 methodHistoryManager.save(record);
                             }
-                        });
-                    });
+                        }
+                    }));
                 });
-            } catch (Exception ex) {
-                log.warn("刷新方法历史记录失败，方法签名：{}", methodKey, ex);
-            }
-        });
+            });
+        } catch (Exception ex) {
+            log.warn("刷新方法历史记录失败，方法签名：{}", methodKey, ex);
+        }
     }
 
     /**
@@ -206,6 +598,10 @@ public final class PluginProjectService implements Disposable {
         }
 
         record = methodHistoryManager.findByKey(methodKey);
+        if (record == null) {
+            log.warn("方法记录不存在，无法生成注释：{}", methodKey);
+            return;
+        }
         if (!MethodStatus.NEW_METHOD_WITHOUT_COMMENT.equals(record.getStatus())) {
             log.info("方法不处于可生成注释状态，跳过生成：{}", methodKey);
             return;
@@ -250,6 +646,8 @@ public final class PluginProjectService implements Disposable {
     @Override
     public void dispose() {
         log.info("项目关闭，释放资源");
+        cancelRunningScan();
+        MethodValidationUtil.clearCache(project);
         CommentGeneratorClient.shutdown();
     }
 }
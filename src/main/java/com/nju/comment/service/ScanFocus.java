@@ -0,0 +1,70 @@
+package com.nju.comment.service;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.fileEditor.FileEditorManager;
+import com.intellij.openapi.fileEditor.ex.IdeDocumentHistory;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.vfs.VirtualFile;
+
+import java.awt.*;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 全量扫描的优先级依据：用户当前关注的位置。
+ *
+ * @param visibleRange 当前编辑器可见区域对应的文档偏移范围，没有打开的编辑器时为 null
+ * @param files        按优先级排列的关注文件：当前文件、其余打开的标签页、最近编辑的文件，已去重
+ */
+record ScanFocus(TextRange visibleRange, List<VirtualFile> files) {
+
+    private static final ScanFocus EMPTY = new ScanFocus(null, List.of());
+
+    /**
+     * 在 EDT 上采集当前关注位置，调用线程不能持有读锁
+     */
+    static ScanFocus capture(Project project) {
+        ScanFocus[] result = {EMPTY};
+        ApplicationManager.getApplication().invokeAndWait(() -> {
+            if (!project.isDisposed()) {
+                result[0] = captureOnEdt(project);
+            }
+        }, ModalityState.any());
+        return result[0];
+    }
+
+    private static ScanFocus captureOnEdt(Project project) {
+        FileEditorManager editorManager = FileEditorManager.getInstance(project);
+        Set<VirtualFile> files = new LinkedHashSet<>();
+        TextRange visibleRange = null;
+
+        Editor editor = editorManager.getSelectedTextEditor();
+        if (editor != null) {
+            VirtualFile selected = FileDocumentManager.getInstance().getFile(editor.getDocument());
+            if (selected != null) {
+                files.add(selected);
+                Rectangle area = editor.getScrollingModel().getVisibleArea();
+                int start = editor.logicalPositionToOffset(editor.xyToLogicalPosition(area.getLocation()));
+                int end = editor.logicalPositionToOffset(editor.xyToLogicalPosition(
+                        new Point(area.x + area.width, area.y + area.height)));
+                visibleRange = new TextRange(start, Math.max(start, end));
+            }
+        }
+        files.addAll(Arrays.asList(editorManager.getOpenFiles()));
+        files.addAll(Arrays.asList(IdeDocumentHistory.getInstance(project).getChangedFiles()));
+        return new ScanFocus(visibleRange, List.copyOf(files));
+    }
+
+    /**
+     * 可见区域只对应关注文件中的第一个，即当前文件
+     */
+    TextRange visibleRangeOf(VirtualFile file) {
+        return !files.isEmpty() && files.getFirst().equals(file) ? visibleRange : null;
+    }
+}
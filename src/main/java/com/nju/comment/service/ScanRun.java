@@ -0,0 +1,137 @@
+package com.nju.comment.service;
+
+import com.nju.comment.client.global.CommentGeneratorClient;
+import lombok.Getter;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 一次全量刷新的运行状态：文件与方法进度、取消标志以及本次扫描发起过生成请求的方法。
+ * <p>
+ * 取消只阻止后续提交与尚未开始的方法刷新，已开始的单方法刷新照常执行完，
+ * 保证每条历史记录的状态与暂存内容一起保存；被放弃的生成请求由下一次扫描按记录状态重新发起。
+ */
+public final class ScanRun {
+
+    @Getter
+    private final long startNanos = System.nanoTime();
+    @Getter
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+    private final AtomicInteger totalFiles = new AtomicInteger();
+    private final AtomicInteger filesDone = new AtomicInteger();
+    private final AtomicInteger methodsSubmitted = new AtomicInteger();
+    private final AtomicInteger methodsDone = new AtomicInteger();
+    private final AtomicBoolean progressShown = new AtomicBoolean();
+    private volatile boolean collecting = true;
+    private volatile boolean explicit;
+
+    // 以下字段由 this 保护
+    private final Set<String> generatingKeys = new LinkedHashSet<>();
+    private boolean cancelled;
+
+    void addTotalFiles(int count) {
+        totalFiles.addAndGet(count);
+    }
+
+    void fileDone() {
+        filesDone.incrementAndGet();
+    }
+
+    void methodSubmitted() {
+        methodsSubmitted.incrementAndGet();
+    }
+
+    void methodDone() {
+        methodsDone.incrementAndGet();
+    }
+
+    void collectionFinished() {
+        collecting = false;
+    }
+
+    /**
+     * 标记本次扫描由用户显式触发，此后发起的生成请求不等待发送静默期
+     */
+    void markExplicit() {
+        explicit = true;
+    }
+
+    public boolean isExplicit() {
+        return explicit;
+    }
+
+    /**
+     * 标记已为本次扫描展示进度条，避免重复展示
+     *
+     * @return 首次标记时为 true
+     */
+    boolean markProgressShown() {
+        return progressShown.compareAndSet(false, true);
+    }
+
+    /**
+     * 记录本次扫描为某方法发起生成请求
+     *
+     * @return 扫描已取消时为 false，调用方不应再发起请求
+     */
+    synchronized boolean trackGeneration(String methodKey) {
+        if (cancelled) {
+            return false;
+        }
+        generatingKeys.add(methodKey);
+        return true;
+    }
+
+    /**
+     * 取消本次扫描：停止提交新的方法刷新，并放弃本次扫描发起的待发送与在途生成请求
+     */
+    public void cancel() {
+        Set<String> keys;
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            keys = Set.copyOf(generatingKeys);
+            generatingKeys.clear();
+        }
+        keys.forEach(CommentGeneratorClient::discardForMethod);
+    }
+
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    public int getTotalFiles() {
+        return totalFiles.get();
+    }
+
+    public int getFilesDone() {
+        return filesDone.get();
+    }
+
+    public int getMethodsSubmitted() {
+        return methodsSubmitted.get();
+    }
+
+    public int getMethodsDone() {
+        return methodsDone.get();
+    }
+
+    public boolean isCollecting() {
+        return collecting;
+    }
+
+    /**
+     * 自扫描开始以来每秒完成的方法数
+     */
+    public double methodsPerSecond() {
+        double seconds = (System.nanoTime() - startNanos) / 1_000_000_000D;
+        return seconds <= 0 ? 0D : methodsDone.get() / seconds;
+    }
+}
@@ -0,0 +1,53 @@
+package com.nju.comment.service;
+
+import com.nju.comment.metrics.PluginMetrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 刷新流程的累计统计：访问的文件与方法数量、持有读锁的总时长。
+ * 项目维度的累计值保存在本类中，同时汇总到全局 {@link PluginMetrics}。
+ */
+public final class ScanStatistics {
+
+    private final LongAdder filesVisited = new LongAdder();
+    private final LongAdder methodsVisited = new LongAdder();
+    private final LongAdder readLockNanos = new LongAdder();
+
+    private final PluginMetrics metrics = PluginMetrics.getInstance();
+
+    void recordFiles(int count) {
+        filesVisited.add(count);
+        metrics.add(PluginMetrics.SCAN_FILES, count);
+    }
+
+    void recordMethod() {
+        methodsVisited.increment();
+        metrics.increment(PluginMetrics.SCAN_METHODS);
+    }
+
+    void recordReadLock(long startNanos) {
+        long nanos = System.nanoTime() - startNanos;
+        readLockNanos.add(nanos);
+        metrics.histogram(PluginMetrics.SCAN_READ_LOCK).record(nanos);
+    }
+
+    /**
+     * 获取当前统计快照
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(filesVisited.sum(), methodsVisited.sum(), readLockNanos.sum());
+    }
+
+    public record Snapshot(long filesVisited, long methodsVisited, long readLockNanos) {
+
+        /**
+         * 计算与更早快照之间的增量
+         */
+        public Snapshot minus(Snapshot earlier) {
+            return new Snapshot(filesVisited - earlier.filesVisited,
+                    methodsVisited - earlier.methodsVisited,
+                    readLockNanos - earlier.readLockNanos);
+        }
+    }
+}
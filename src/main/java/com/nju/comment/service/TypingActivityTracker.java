@@ -0,0 +1,98 @@
+package com.nju.comment.service;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.EditorFactory;
+import com.intellij.openapi.editor.event.DocumentEvent;
+import com.intellij.openapi.editor.event.DocumentListener;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 文档级输入活跃度跟踪：记录每个文档最近一次被修改的时间，用户连续输入期间推迟对该文档的后台扫描。
+ * <p>
+ * 监听器在 EDT 的写操作内随每次按键触发，因此只写入一个时间戳，不访问 PSI、不做文件映射；
+ * 文档与文件的对应关系推迟到扫描线程查询时再解析。
+ */
+public final class TypingActivityTracker implements DocumentListener {
+
+    private final Map<Document, Long> lastTypedNanos = new ConcurrentHashMap<>();
+    private final long idleNanos;
+
+    TypingActivityTracker(long idleMillis, Disposable parent) {
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleMillis);
+        EditorFactory.getInstance().getEventMulticaster().addDocumentListener(this, parent);
+        Disposer.register(parent, lastTypedNanos::clear);
+    }
+
+    @Override
+    public void documentChanged(@NotNull DocumentEvent event) {
+        lastTypedNanos.put(event.getDocument(), System.nanoTime());
+    }
+
+    /**
+     * 文件距离空闲还需等待的毫秒数，已空闲或从未修改时为 0
+     */
+    public long remainingIdleMillis(VirtualFile file) {
+        Long last = lastTyped(file);
+        if (last == null) {
+            return 0;
+        }
+        long remaining = idleNanos - (System.nanoTime() - last);
+        return remaining <= 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(remaining) + 1;
+    }
+
+    public boolean isIdle(VirtualFile file) {
+        return remainingIdleMillis(file) == 0;
+    }
+
+    /**
+     * 按输入活跃度划分文件：仍在输入中的文件放入 busy，其余按空闲时长从长到短返回，从未修改的文件最先
+     *
+     * @param files 待扫描文件
+     * @param busy  接收仍在输入中的文件
+     * @return 空闲文件，空闲越久越靠前
+     */
+    public List<VirtualFile> idleFirst(Collection<VirtualFile> files, Collection<VirtualFile> busy) {
+        long now = System.nanoTime();
+        List<VirtualFile> result = new ArrayList<>(files.size());
+        List<Map.Entry<VirtualFile, Long>> settled = new ArrayList<>();
+        for (VirtualFile file : files) {
+            Long last = lastTyped(file);
+            if (last == null) {
+                result.add(file);
+            } else if (now - last < idleNanos) {
+                busy.add(file);
+            } else {
+                settled.add(Map.entry(file, last));
+            }
+        }
+        settled.sort(Map.Entry.comparingByValue());
+        for (Map.Entry<VirtualFile, Long> entry : settled) {
+            result.add(entry.getKey());
+        }
+        return result;
+    }
+
+    /**
+     * 清理已空闲文档的记录，避免持有已关闭文档的引用
+     */
+    public void prune() {
+        long now = System.nanoTime();
+        lastTypedNanos.values().removeIf(last -> now - last >= idleNanos);
+    }
+
+    private Long lastTyped(VirtualFile file) {
+        Document document = FileDocumentManager.getInstance().getCachedDocument(file);
+        return document == null ? null : lastTypedNanos.get(document);
+    }
+}
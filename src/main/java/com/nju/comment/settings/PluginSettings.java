@@ -0,0 +1,53 @@
+package com.nju.comment.settings;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.PersistentStateComponent;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.components.State;
+import com.intellij.openapi.components.Storage;
+import com.nju.comment.constant.Constant;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * 插件的应用级设置，持久化到 comment-consistency.xml。
+ */
+@Service(Service.Level.APP)
+@State(name = "CommentConsistencySettings", storages = @Storage("comment-consistency.xml"))
+public final class PluginSettings implements PersistentStateComponent<PluginSettings.SettingsState> {
+
+    private SettingsState state = new SettingsState();
+
+    public static PluginSettings getInstance() {
+        return ApplicationManager.getApplication().getService(PluginSettings.class);
+    }
+
+    @Override
+    public @NotNull SettingsState getState() {
+        return state;
+    }
+
+    @Override
+    public void loadState(@NotNull SettingsState state) {
+        this.state = state;
+    }
+
+    /**
+     * 后台刷新的 CPU 预算，单位为单核的百分比，超出范围的值按边界处理
+     */
+    public int getBackgroundCpuBudgetPercent() {
+        return clampBudgetPercent(state.backgroundCpuBudgetPercent);
+    }
+
+    public void setBackgroundCpuBudgetPercent(int percent) {
+        state.backgroundCpuBudgetPercent = clampBudgetPercent(percent);
+    }
+
+    private static int clampBudgetPercent(int percent) {
+        return Math.max(Constant.BACKGROUND_CPU_BUDGET_MIN_PERCENT,
+                Math.min(Constant.BACKGROUND_CPU_BUDGET_MAX_PERCENT, percent));
+    }
+
+    public static class SettingsState {
+        public int backgroundCpuBudgetPercent = Constant.BACKGROUND_CPU_BUDGET_DEFAULT_PERCENT;
+    }
+}
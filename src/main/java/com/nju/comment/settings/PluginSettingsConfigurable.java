@@ -0,0 +1,67 @@
+package com.nju.comment.settings;
+
+import com.intellij.openapi.options.Configurable;
+import com.intellij.ui.components.JBLabel;
+import com.nju.comment.constant.Constant;
+import com.nju.comment.service.CpuBudgetScheduler;
+import org.jetbrains.annotations.Nls;
+
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * Settings | Tools | Comment Consistency 设置页
+ */
+public class PluginSettingsConfigurable implements Configurable {
+
+    private JPanel root;
+    private JSpinner cpuBudgetSpinner;
+
+    @Override
+    public @Nls String getDisplayName() {
+        return "Comment Consistency";
+    }
+
+    @Override
+    public JComponent createComponent() {
+        cpuBudgetSpinner = new JSpinner(new SpinnerNumberModel(Constant.BACKGROUND_CPU_BUDGET_DEFAULT_PERCENT,
+                Constant.BACKGROUND_CPU_BUDGET_MIN_PERCENT, Constant.BACKGROUND_CPU_BUDGET_MAX_PERCENT, 5));
+
+        JPanel row = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        row.add(new JBLabel("Background refresh CPU budget (% of one core):"));
+        row.add(cpuBudgetSpinner);
+
+        root = new JPanel(new BorderLayout());
+        root.add(row, BorderLayout.NORTH);
+        root.add(new JBLabel("Applies to automatic refreshes only; Update All and file/method actions are not throttled."),
+                BorderLayout.CENTER);
+        reset();
+        return root;
+    }
+
+    @Override
+    public boolean isModified() {
+        return cpuBudgetSpinner != null
+                && (int) cpuBudgetSpinner.getValue() != PluginSettings.getInstance().getBackgroundCpuBudgetPercent();
+    }
+
+    @Override
+    public void apply() {
+        PluginSettings settings = PluginSettings.getInstance();
+        settings.setBackgroundCpuBudgetPercent((int) cpuBudgetSpinner.getValue());
+        CpuBudgetScheduler.getInstance().setBudgetPercent(settings.getBackgroundCpuBudgetPercent());
+    }
+
+    @Override
+    public void reset() {
+        if (cpuBudgetSpinner != null) {
+            cpuBudgetSpinner.setValue(PluginSettings.getInstance().getBackgroundCpuBudgetPercent());
+        }
+    }
+
+    @Override
+    public void disposeUIResources() {
+        root = null;
+        cpuBudgetSpinner = null;
+    }
+}
@@ -0,0 +1,127 @@
+package com.nju.comment.toolwindow;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.fileChooser.FileChooserFactory;
+import com.intellij.openapi.fileChooser.FileSaverDescriptor;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.vfs.VirtualFileWrapper;
+import com.intellij.ui.components.JBLabel;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.table.JBTable;
+import com.nju.comment.constant.Constant;
+import com.nju.comment.metrics.LatencyHistogram;
+import com.nju.comment.metrics.PluginMetrics;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 诊断面板：定时展示 {@link PluginMetrics} 中的计数器、仪表与延迟直方图，支持导出为 JSON。
+ */
+@Slf4j
+public class DiagnosticsPanel implements Disposable {
+
+    private static final String[] COLUMNS = {"Type", "Metric", "Value"};
+
+    @Getter
+    private final JPanel root;
+    private final DefaultTableModel tableModel;
+    private final JBLabel cpuBudgetLabel = new JBLabel();
+    private final Project project;
+    private final PluginMetrics metrics = PluginMetrics.getInstance();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    public DiagnosticsPanel(Project project) {
+        this.project = project;
+        root = new JPanel(new BorderLayout());
+
+        tableModel = new DefaultTableModel(COLUMNS, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        JBTable table = new JBTable(tableModel);
+        table.getColumnModel().getColumn(0).setPreferredWidth(60);
+        table.getColumnModel().getColumn(1).setPreferredWidth(220);
+        table.getColumnModel().getColumn(2).setPreferredWidth(360);
+
+        JButton exportBtn = new JButton("Export JSON");
+        JButton resetBtn = new JButton("Reset");
+        JPanel top = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        top.add(exportBtn);
+        top.add(resetBtn);
+        top.add(cpuBudgetLabel);
+
+        root.add(top, BorderLayout.NORTH);
+        root.add(new JBScrollPane(table), BorderLayout.CENTER);
+
+        exportBtn.addActionListener(e -> exportJson());
+        resetBtn.addActionListener(e -> {
+            metrics.reset();
+            refreshTable(metrics.snapshot());
+        });
+
+        scheduler.scheduleWithFixedDelay(this::pollAndRefresh,
+                Constant.UI_REFRESH_INITIAL_DELAY_MS, Constant.DIAGNOSTICS_REFRESH_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void pollAndRefresh() {
+        PluginMetrics.Snapshot snapshot = metrics.snapshot();
+        ApplicationManager.getApplication().invokeLater(() -> refreshTable(snapshot));
+    }
+
+    private void refreshTable(PluginMetrics.Snapshot snapshot) {
+        Long used = snapshot.gauges().get(PluginMetrics.CPU_BUDGET_UTILIZATION);
+        Long limit = snapshot.gauges().get(PluginMetrics.CPU_BUDGET_LIMIT);
+        if (used != null && limit != null) {
+            cpuBudgetLabel.setText("Background CPU: " + used + "% / " + limit + "% of one core");
+        }
+
+        tableModel.setRowCount(0);
+        for (Map.Entry<String, Long> entry : snapshot.counters().entrySet()) {
+            tableModel.addRow(new Object[]{"counter", entry.getKey(), entry.getValue()});
+        }
+        for (Map.Entry<String, Long> entry : snapshot.gauges().entrySet()) {
+            tableModel.addRow(new Object[]{"gauge", entry.getKey(), entry.getValue()});
+        }
+        for (Map.Entry<String, LatencyHistogram.Snapshot> entry : snapshot.histograms().entrySet()) {
+            tableModel.addRow(new Object[]{"latency", entry.getKey(), entry.getValue().toString()});
+        }
+    }
+
+    private void exportJson() {
+        FileSaverDescriptor descriptor = new FileSaverDescriptor("Export Metrics", "Export pipeline metrics as JSON", "json");
+        VirtualFileWrapper target = FileChooserFactory.getInstance()
+                .createSaveFileDialog(descriptor, project)
+                .save("comment-consistency-metrics.json");
+        if (target == null) {
+            return;
+        }
+        try {
+            Files.writeString(target.getFile().toPath(), metrics.toJson(), StandardCharsets.UTF_8);
+            log.info("指标已导出：{}", target.getFile());
+        } catch (IOException e) {
+            log.error("指标导出失败", e);
+            Messages.showErrorDialog(project, e.getMessage(), "Export Metrics");
+        }
+    }
+
+    @Override
+    public void dispose() {
+        scheduler.shutdownNow();
+    }
+}
@@ -9,12 +9,17 @@ import com.nju.comment.dto.MethodRecord;
 import com.nju.comment.dto.MethodStatus;
 import com.nju.comment.history.MethodHistoryManager;
 import com.nju.comment.history.MethodHistoryRepositoryImpl;
+import com.nju.comment.metrics.event.PipelineEvent;
+import com.nju.comment.metrics.event.UiRefreshEvent;
+import com.nju.comment.trace.Span;
+import com.nju.comment.trace.TraceRecorder;
 import com.nju.comment.service.PluginProjectService;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.swing.*;
 import java.awt.*;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.*;
@@ -37,6 +42,7 @@ public class HistoryCardsPanel {
 
     private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
     private Set<String> lastSeenSignatures = ConcurrentHashMap.newKeySet();
+    private final Set<String> displayedTraceIds = new HashSet<>();
 
     public HistoryCardsPanel(Project project) {
         this.project = project;
@@ -69,8 +75,12 @@ public class HistoryCardsPanel {
             }
             autoDeleteFuture = autoDeleteScheduler.scheduleWithFixedDelay(() -> {
                 PluginProjectService service = project.getService(PluginProjectService.class);
+                // 索引构建或省电模式下不清理：方法收集结果不完整时会误删历史记录
+                if (service.isBackgroundPaused()) {
+                    return;
+                }
                 List<PsiMethod> methods = service.collectAllMethods(project);
-                methodHistoryManager.clearDeletedMethodHistories(methods);
+                methodHistoryManager.clearDeletedMethodHistories(project, methods);
             }, Constant.AUTO_DELETE_INITIAL_DELAY_MS, Constant.AUTO_DELETE_DELAY_MS, TimeUnit.MILLISECONDS);
         } else {
             autoDeleteBtn.setText("Auto Delete: OFF");
@@ -104,6 +114,9 @@ public class HistoryCardsPanel {
     }
 
     private void refreshList(List<MethodRecord> staged) {
+        UiRefreshEvent event = new UiRefreshEvent();
+        event.begin();
+        long startMicros = TraceRecorder.nowMicros();
         listPanel.removeAll();
         for (MethodRecord record : staged) {
             MethodHistoryCard card = new MethodHistoryCard(project, record);
@@ -112,5 +125,33 @@ public class HistoryCardsPanel {
         }
         listPanel.revalidate();
         listPanel.repaint();
+        recordDisplaySpans(staged, startMicros);
+        if (event.shouldCommit()) {
+            event.cards = staged.size();
+            event.outcome = PipelineEvent.OUTCOME_OK;
+            event.commit();
+        }
+    }
+
+    /**
+     * 为首次展示的暂存注释记录 UI 区间，作为追踪链路的终点
+     */
+    private void recordDisplaySpans(List<MethodRecord> staged, long startMicros) {
+        Set<String> current = new HashSet<>();
+        long durationMicros = TraceRecorder.nowMicros() - startMicros;
+        Thread thread = Thread.currentThread();
+        for (MethodRecord record : staged) {
+            String traceId = record.getTraceId();
+            if (traceId == null) {
+                continue;
+            }
+            current.add(traceId);
+            if (!displayedTraceIds.contains(traceId)) {
+                TraceRecorder.getInstance().add(new Span(traceId, record.getKey(), "showCard", "ui",
+                        thread.getName(), thread.threadId(), startMicros, durationMicros));
+            }
+        }
+        displayedTraceIds.retainAll(current);
+        displayedTraceIds.addAll(current);
     }
 }
@@ -1,8 +1,12 @@
 package com.nju.comment.toolwindow;
 
+import com.intellij.openapi.Disposable;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.ComboBox;
+import com.intellij.ui.JBColor;
+import com.nju.comment.client.CircuitBreaker;
+import com.nju.comment.client.ModelRouter;
 import com.nju.comment.client.global.CommentGeneratorClient;
 import com.nju.comment.constant.Constant;
 import com.nju.comment.history.MethodHistoryManager;
@@ -20,12 +24,13 @@ import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 @Slf4j
-public class ModelSelectorPanel {
+public class ModelSelectorPanel implements Disposable {
     @Getter
     private final JPanel root;
     private final DefaultComboBoxModel<String> comboBoxModel;
     private final ComboBox<String> modelCombo;
     private final JToggleButton autoUpdateBtn;
+    private final JLabel backendStatusLabel;
 
     private final MethodHistoryManager methodHistoryManager =
             new MethodHistoryManager(MethodHistoryRepositoryImpl.getInstance());
@@ -33,6 +38,8 @@ public class ModelSelectorPanel {
     private ScheduledExecutorService autoUpdateScheduler;
     private ScheduledFuture<?> autoUpdateFuture;
 
+    private final ScheduledExecutorService statusScheduler = Executors.newSingleThreadScheduledExecutor();
+
     public ModelSelectorPanel(Project project) {
         root = new JPanel(new BorderLayout());
         comboBoxModel = new DefaultComboBoxModel<>();
@@ -42,6 +49,8 @@ public class ModelSelectorPanel {
         JButton updateAllMethodsBtn = new JButton("Update All Methods");
         JButton checkMethodRecordsBtn = new JButton("Print Records");
         autoUpdateBtn = new JToggleButton("Auto Update: OFF");
+        backendStatusLabel = new JLabel();
+        showBackendStatus(CircuitBreaker.State.CLOSED);
 
         JPanel row1 = new JPanel(new FlowLayout(FlowLayout.LEFT));
         JPanel comboHolder = new JPanel(new FlowLayout(FlowLayout.LEFT));
@@ -54,6 +63,7 @@ public class ModelSelectorPanel {
         JPanel row2 = new JPanel(new FlowLayout(FlowLayout.LEFT));
         row2.add(updateAllMethodsBtn);
         row2.add(checkMethodRecordsBtn);
+        row2.add(backendStatusLabel);
 
         JPanel top = new JPanel();
         top.setLayout(new BoxLayout(top, BoxLayout.Y_AXIS));
@@ -69,6 +79,29 @@ public class ModelSelectorPanel {
         autoUpdateBtn.addActionListener(e -> autoUpdate(project));
 
         loadModels();
+
+        statusScheduler.scheduleWithFixedDelay(() -> {
+                    CircuitBreaker.State state = CommentGeneratorClient.getCircuitState();
+                    ApplicationManager.getApplication().invokeLater(() -> showBackendStatus(state));
+                }, Constant.UI_REFRESH_INITIAL_DELAY_MS, Constant.BACKEND_STATUS_REFRESH_DELAY_MS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    private void showBackendStatus(CircuitBreaker.State state) {
+        switch (state) {
+            case CLOSED -> {
+                backendStatusLabel.setText("Backend: OK");
+                backendStatusLabel.setForeground(JBColor.foreground());
+            }
+            case OPEN -> {
+                backendStatusLabel.setText("Backend: Unavailable (circuit open)");
+                backendStatusLabel.setForeground(JBColor.RED);
+            }
+            case HALF_OPEN -> {
+                backendStatusLabel.setText("Backend: Probing...");
+                backendStatusLabel.setForeground(JBColor.ORANGE);
+            }
+        }
     }
 
     private void autoUpdate(Project project) {
@@ -80,7 +113,7 @@ public class ModelSelectorPanel {
             autoUpdateFuture = autoUpdateScheduler.scheduleWithFixedDelay(() -> {
                 PluginProjectService service = project.getService(PluginProjectService.class);
                 if (service != null) {
-                    service.refreshAllMethodHistories();
+                    service.autoRefreshAllMethodHistories();
                 }
             }, Constant.AUTO_UPDATE_INITIAL_DELAY_MS, Constant.AUTO_UPDATE_DELAY_MS, TimeUnit.MILLISECONDS);
         } else {
@@ -98,7 +131,7 @@ public class ModelSelectorPanel {
 
     private static void updateAllMethods(Project project) {
         PluginProjectService service = project.getService(PluginProjectService.class);
-        service.refreshAllMethodHistories();
+        service.refreshAllMethodHistoriesWithProgress();
     }
 
     private void selectModel() {
@@ -119,9 +152,9 @@ public class ModelSelectorPanel {
             }
             ApplicationManager.getApplication().invokeLater(() -> {
                 comboBoxModel.removeAllElements();
-                models.forEach(comboBoxModel::addElement);
+                addModelItems(models);
                 String sel = CommentGeneratorClient.getSelectedModel();
-                if (sel != null && !sel.isEmpty() && models.contains(sel)) {
+                if (sel != null && !sel.isEmpty() && (models.contains(sel) || ModelRouter.isAuto(sel))) {
                     comboBoxModel.setSelectedItem(sel);
                 } else if (!models.isEmpty()) {
                     comboBoxModel.setSelectedItem(models.getFirst());
@@ -139,11 +172,30 @@ public class ModelSelectorPanel {
         }
         ApplicationManager.getApplication().invokeLater(() -> {
             comboBoxModel.removeAllElements();
-            models.forEach(comboBoxModel::addElement);
+            addModelItems(models);
             if (!models.isEmpty()) {
                 comboBoxModel.setSelectedItem(models.getFirst());
                 CommentGeneratorClient.setSelectedModel(models.getFirst());
             }
         });
     }
+
+    /**
+     * 填充模型下拉框：有可用模型时在最前面提供自动选择项
+     */
+    private void addModelItems(List<String> models) {
+        if (!models.isEmpty()) {
+            comboBoxModel.addElement(ModelRouter.AUTO);
+        }
+        models.forEach(comboBoxModel::addElement);
+    }
+
+    @Override
+    public void dispose() {
+        statusScheduler.shutdownNow();
+        if (autoUpdateScheduler != null) {
+            autoUpdateScheduler.shutdownNow();
+            autoUpdateScheduler = null;
+        }
+    }
 }
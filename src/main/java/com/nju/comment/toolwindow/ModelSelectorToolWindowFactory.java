@@ -3,6 +3,7 @@ package com.nju.comment.toolwindow;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.project.DumbService;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
 import com.intellij.openapi.wm.ToolWindow;
 import com.intellij.openapi.wm.ToolWindowFactory;
 import com.intellij.ui.content.Content;
@@ -30,10 +31,16 @@ public class ModelSelectorToolWindowFactory implements ToolWindowFactory {
             root.add(historyCardsPanel.getRoot(), BorderLayout.CENTER);
 
             ContentFactory contentFactory = ContentFactory.getInstance();
-            Content content = contentFactory.createContent(root, "", false);
+            Content content = contentFactory.createContent(root, "Model Selector", false);
+            Disposer.register(content, selectorPanel);
             toolWindow.getContentManager().addContent(content);
 
-            DumbService.getInstance(project).runWhenSmart(service::refreshAllMethodHistories);
+            DiagnosticsPanel diagnosticsPanel = new DiagnosticsPanel(project);
+            Content diagnosticsContent = contentFactory.createContent(diagnosticsPanel.getRoot(), "Diagnostics", false);
+            Disposer.register(diagnosticsContent, diagnosticsPanel);
+            toolWindow.getContentManager().addContent(diagnosticsContent);
+
+            DumbService.getInstance(project).runWhenSmart(service::autoRefreshAllMethodHistories);
         }));
     }
 }
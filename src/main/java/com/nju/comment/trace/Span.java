@@ -0,0 +1,8 @@
+package com.nju.comment.trace;
+
+/**
+ * 一段已结束的追踪区间，时间单位为微秒（相对 JVM 启动的单调时钟）。
+ */
+public record Span(String traceId, String methodKey, String name, String category,
+                   String threadName, long threadId, long startMicros, long durationMicros) {
+}
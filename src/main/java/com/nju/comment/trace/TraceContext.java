@@ -0,0 +1,119 @@
+package com.nju.comment.trace;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 一次方法刷新的追踪上下文。traceId 同时作为后端请求的 clientRequestId，贯穿扫描、状态机、客户端、回调与 UI。
+ * <p>
+ * 上下文绑定在线程上；跨线程时在提交任务前用 {@link #current()} 取出，在目标线程内用 {@link #attach()} 恢复。
+ * 绝大多数刷新不会发起生成请求，因此扫描阶段的区间先暂存在上下文内，只有调用 {@link #promote()}
+ * （即真正向后端发出请求）后才写入 {@link TraceRecorder}，未晋升的上下文随刷新结束被丢弃。
+ */
+public final class TraceContext {
+
+    private static final ThreadLocal<TraceContext> CURRENT = new ThreadLocal<>();
+
+    @Getter
+    private final String traceId;
+    @Getter
+    private final String methodKey;
+
+    private final List<Span> pending = new ArrayList<>(4);
+    private boolean promoted;
+
+    private TraceContext(String traceId, String methodKey) {
+        this.traceId = traceId;
+        this.methodKey = methodKey;
+    }
+
+    /**
+     * 创建新的追踪上下文
+     */
+    public static TraceContext start(String methodKey) {
+        return new TraceContext(UUID.randomUUID().toString(), methodKey);
+    }
+
+    /**
+     * 当前线程绑定的上下文，可能为 null
+     */
+    public static TraceContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 当前线程的 traceId，无上下文时为 null
+     */
+    public static String currentTraceId() {
+        TraceContext context = CURRENT.get();
+        return context == null ? null : context.traceId;
+    }
+
+    /**
+     * 将上下文绑定到当前线程，关闭 Scope 时恢复之前的上下文
+     */
+    public Scope attach() {
+        TraceContext previous = CURRENT.get();
+        CURRENT.set(this);
+        return () -> {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    /**
+     * 包装任务，使其在目标线程上以当前线程的上下文执行
+     */
+    public static Runnable wrap(Runnable task) {
+        TraceContext context = CURRENT.get();
+        if (context == null) {
+            return task;
+        }
+        return () -> {
+            try (Scope ignored = context.attach()) {
+                task.run();
+            }
+        };
+    }
+
+    /**
+     * 晋升为需要保留的追踪：暂存的区间写入记录器，之后的区间直接写入
+     */
+    public void promote() {
+        List<Span> flushed;
+        synchronized (pending) {
+            if (promoted) {
+                return;
+            }
+            promoted = true;
+            flushed = new ArrayList<>(pending);
+            pending.clear();
+        }
+        flushed.forEach(TraceRecorder.getInstance()::add);
+    }
+
+    /**
+     * 记录一个区间：已晋升时写入记录器，否则暂存
+     */
+    void offer(Span span) {
+        synchronized (pending) {
+            if (!promoted) {
+                pending.add(span);
+                return;
+            }
+        }
+        TraceRecorder.getInstance().add(span);
+    }
+
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,181 @@
+package com.nju.comment.trace;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nju.comment.constant.Constant;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 追踪区间记录器，进程内单例。
+ * <p>
+ * 区间保存在有界缓冲区中，超过容量时丢弃最早的区间；可导出为 Chrome / Perfetto 的 trace-event JSON，
+ * 同一 traceId 的区间之间以 flow 事件相连，便于在时间线上查看一次编辑从扫描到 UI 展示的完整链路。
+ */
+public final class TraceRecorder {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Deque<Span> spans = new ArrayDeque<>();
+    private final int capacity;
+
+    private TraceRecorder(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public static TraceRecorder getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    private static class Holder {
+        private static final TraceRecorder INSTANCE = new TraceRecorder(Constant.TRACE_BUFFER_CAPACITY);
+    }
+
+    /**
+     * 当前单调时钟（微秒），用于跨线程记录区间起点
+     */
+    public static long nowMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(System.nanoTime());
+    }
+
+    /**
+     * 在当前线程的追踪上下文中开启区间，无上下文时返回空操作区间
+     */
+    public ActiveSpan span(String name, String category) {
+        TraceContext context = TraceContext.current();
+        if (context == null) {
+            return ActiveSpan.NOOP;
+        }
+        return new ActiveSpan(this, context, name, category, nowMicros());
+    }
+
+    /**
+     * 记录一段在 startMicros 开始、到现在结束的区间，适用于起止在不同线程的场景
+     */
+    public void record(TraceContext context, String name, String category, long startMicros) {
+        if (context == null) {
+            return;
+        }
+        Thread thread = Thread.currentThread();
+        context.offer(new Span(context.getTraceId(), context.getMethodKey(), name, category,
+                thread.getName(), thread.threadId(), startMicros, Math.max(0, nowMicros() - startMicros)));
+    }
+
+    /**
+     * 直接写入一个区间，用于不经过上下文暂存的场景（如 UI 展示）
+     */
+    public void add(Span span) {
+        synchronized (spans) {
+            if (spans.size() >= capacity) {
+                spans.pollFirst();
+            }
+            spans.addLast(span);
+        }
+    }
+
+    /**
+     * 获取缓冲区中全部区间的副本
+     */
+    public List<Span> snapshot() {
+        synchronized (spans) {
+            return new ArrayList<>(spans);
+        }
+    }
+
+    public void clear() {
+        synchronized (spans) {
+            spans.clear();
+        }
+    }
+
+    /**
+     * 导出为 Chrome trace-event JSON
+     */
+    public String toChromeTraceJson() throws JsonProcessingException {
+        List<Span> all = snapshot();
+        List<Map<String, Object>> events = new ArrayList<>(all.size() * 2);
+        Map<Long, String> threadNames = new LinkedHashMap<>();
+
+        for (Span span : all) {
+            threadNames.putIfAbsent(span.threadId(), span.threadName());
+            Map<String, Object> event = new LinkedHashMap<>();
+            event.put("name", span.name());
+            event.put("cat", span.category());
+            event.put("ph", "X");
+            event.put("ts", span.startMicros());
+            event.put("dur", span.durationMicros());
+            event.put("pid", 1);
+            event.put("tid", span.threadId());
+            event.put("args", Map.of("traceId", span.traceId(),
+                    "methodKey", span.methodKey() == null ? "" : span.methodKey()));
+            events.add(event);
+        }
+
+        // 同一 traceId 的区间按时间先后以 flow 事件串联
+        Map<String, List<Span>> byTrace = all.stream().collect(Collectors.groupingBy(Span::traceId));
+        for (List<Span> trace : byTrace.values()) {
+            if (trace.size() < 2) {
+                continue;
+            }
+            trace.sort(Comparator.comparingLong(Span::startMicros));
+            for (int i = 0; i < trace.size(); i++) {
+                Span span = trace.get(i);
+                Map<String, Object> flow = new LinkedHashMap<>();
+                flow.put("name", "trace");
+                flow.put("cat", "flow");
+                flow.put("ph", i == 0 ? "s" : i == trace.size() - 1 ? "f" : "t");
+                flow.put("bp", "e");
+                flow.put("id", span.traceId());
+                flow.put("ts", span.startMicros());
+                flow.put("pid", 1);
+                flow.put("tid", span.threadId());
+                events.add(flow);
+            }
+        }
+
+        threadNames.forEach((tid, name) -> events.add(Map.of(
+                "name", "thread_name", "ph", "M", "pid", 1, "tid", tid, "args", Map.of("name", name))));
+
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("traceEvents", events);
+        root.put("displayTimeUnit", "ms");
+        return MAPPER.writeValueAsString(root);
+    }
+
+    /**
+     * 进行中的区间，关闭时记录
+     */
+    public static final class ActiveSpan implements AutoCloseable {
+
+        private static final ActiveSpan NOOP = new ActiveSpan(null, null, null, null, 0);
+
+        private final TraceRecorder recorder;
+        private final TraceContext context;
+        private final String name;
+        private final String category;
+        private final long startMicros;
+
+        private ActiveSpan(TraceRecorder recorder, TraceContext context, String name, String category, long startMicros) {
+            this.recorder = recorder;
+            this.context = context;
+            this.name = name;
+            this.category = category;
+            this.startMicros = startMicros;
+        }
+
+        @Override
+        public void close() {
+            if (recorder != null) {
+                recorder.record(context, name, category, startMicros);
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.nju.comment.util;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectRootModificationTracker;
+import com.intellij.openapi.util.Key;
+import com.intellij.psi.CommonClassNames;
+import com.intellij.psi.JavaPsiFacade;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 方法校验中异常相关判定的缓存。
+ * <p>
+ * 1. 核心异常类（Throwable/RuntimeException/Error）按项目缓存，项目根或 SDK 变化时失效；<br>
+ * 2. 「是否为未检查异常」「是否被 throws 声明类型覆盖」的判定结果按 PsiClass 缓存，
+ * 任意 PSI 修改后失效，因此在一次扫描内可被所有方法复用。
+ */
+public final class ExceptionClassCache {
+
+    private static final Key<CachedValue<CoreExceptionClasses>> CORE_CLASSES_KEY =
+            Key.create("comment.consistency.coreExceptionClasses");
+    private static final Key<CachedValue<Memo>> MEMO_KEY =
+            Key.create("comment.consistency.exceptionCheckMemo");
+
+    private ExceptionClassCache() {
+    }
+
+    /**
+     * 获取项目的核心异常类
+     */
+    public static CoreExceptionClasses getCoreClasses(Project project) {
+        return CachedValuesManager.getManager(project).getCachedValue(project, CORE_CLASSES_KEY, () -> {
+            JavaPsiFacade facade = JavaPsiFacade.getInstance(project);
+            GlobalSearchScope scope = GlobalSearchScope.allScope(project);
+            CoreExceptionClasses classes = new CoreExceptionClasses(
+                    facade.findClass(CommonClassNames.JAVA_LANG_THROWABLE, scope),
+                    facade.findClass(CommonClassNames.JAVA_LANG_RUNTIME_EXCEPTION, scope),
+                    facade.findClass(CommonClassNames.JAVA_LANG_ERROR, scope));
+            return CachedValueProvider.Result.create(classes, ProjectRootModificationTracker.getInstance(project));
+        }, false);
+    }
+
+    /**
+     * 判断异常类是否为未检查异常（RuntimeException 与 Error 及其子类）
+     */
+    public static boolean isUnchecked(Project project, PsiClass exCls) {
+        return getMemo(project).unchecked.computeIfAbsent(exCls, cls -> {
+            CoreExceptionClasses core = getCoreClasses(project);
+            return (core.runtimeException() != null && cls.isInheritor(core.runtimeException(), true))
+                    || (core.error() != null && cls.isInheritor(core.error(), true))
+                    || CommonClassNames.JAVA_LANG_RUNTIME_EXCEPTION.equals(cls.getQualifiedName())
+                    || CommonClassNames.JAVA_LANG_ERROR.equals(cls.getQualifiedName());
+        });
+    }
+
+    /**
+     * 判断异常类是否被 throws 声明的类型覆盖（同类或其子类）
+     */
+    public static boolean isCoveredBy(Project project, PsiClass exCls, PsiClass declaredCls) {
+        return getMemo(project).covered.computeIfAbsent(new ClassPair(exCls, declaredCls),
+                pair -> pair.exception().equals(pair.declared()) || pair.exception().isInheritor(pair.declared(), true));
+    }
+
+    private static Memo getMemo(Project project) {
+        return CachedValuesManager.getManager(project).getCachedValue(project, MEMO_KEY, () ->
+                CachedValueProvider.Result.create(new Memo(),
+                        PsiModificationTracker.getInstance(project),
+                        ProjectRootModificationTracker.getInstance(project)), false);
+    }
+
+    /**
+     * 核心异常类，任一类在当前 SDK 下无法解析时为 null
+     */
+    public record CoreExceptionClasses(PsiClass throwable, PsiClass runtimeException, PsiClass error) {
+    }
+
+    private record ClassPair(PsiClass exception, PsiClass declared) {
+    }
+
+    private static final class Memo {
+        private final Map<PsiClass, Boolean> unchecked = new ConcurrentHashMap<>();
+        private final Map<ClassPair, Boolean> covered = new ConcurrentHashMap<>();
+    }
+}
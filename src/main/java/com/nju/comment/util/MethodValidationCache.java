@@ -0,0 +1,142 @@
+package com.nju.comment.util;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectRootModificationTracker;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.util.PsiModificationTracker;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * 方法校验结果缓存，按项目分别保存，项目关闭时由 {@link #clear(Project)} 整体丢弃。
+ * <p>
+ * 以方法唯一键为索引，记录校验时所在文件的路径、依赖修改戳以及项目根/SDK 修改计数，三者均未变化时直接复用上次结果。
+ * 依赖修改戳由 {@link Dependency} 决定：只看本文件的校验按文件修改戳失效；
+ * 需要解析其他文件的校验按项目 PSI 修改计数失效，其他文件新增类、修改父类或异常类型后都会重新校验。
+ */
+public final class MethodValidationCache {
+
+    public enum Dependency {
+        /**
+         * 结果只依赖方法所在文件
+         */
+        FILE,
+        /**
+         * 结果依赖项目内其他文件的 PSI
+         */
+        PROJECT
+    }
+
+    private final Dependency dependency;
+    private final Map<Project, Map<String, Entry>> entriesByProject = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public MethodValidationCache(Dependency dependency) {
+        this.dependency = dependency;
+    }
+
+    /**
+     * 获取方法的校验结果，缓存失效时调用 validator 重新计算。需在读操作内调用。
+     *
+     * @param method    目标方法
+     * @param validator 实际的校验逻辑
+     * @return 是否合法
+     */
+    public boolean getOrCompute(PsiMethod method, Predicate<PsiMethod> validator) {
+        PsiFile file = method.getContainingFile();
+        if (file == null) {
+            misses.increment();
+            return validator.test(method);
+        }
+
+        Project project = method.getProject();
+        String key = MethodRecordUtil.buildMethodKey(method);
+        VirtualFile vf = file.getVirtualFile();
+        String path = vf != null ? vf.getPath() : file.getName();
+        long stamp = dependency == Dependency.FILE
+                ? file.getModificationStamp()
+                : PsiModificationTracker.getInstance(project).getModificationCount();
+        long rootStamp = ProjectRootModificationTracker.getInstance(project).getModificationCount();
+
+        Map<String, Entry> entries = entriesByProject.computeIfAbsent(project, p -> new ConcurrentHashMap<>());
+        Entry cached = entries.get(key);
+        if (cached != null && cached.matches(path, stamp, rootStamp)) {
+            hits.increment();
+            return cached.valid();
+        }
+
+        misses.increment();
+        boolean valid = validator.test(method);
+        entries.put(key, new Entry(path, stamp, rootStamp, valid));
+        return valid;
+    }
+
+    /**
+     * 移除指定方法在所有项目中的缓存结果
+     */
+    public void invalidate(String methodKey) {
+        if (methodKey != null) {
+            entriesByProject.values().forEach(entries -> entries.remove(methodKey));
+        }
+    }
+
+    /**
+     * 指定项目中仅保留仍存在的方法的缓存结果
+     */
+    public void retainAll(Project project, Collection<String> methodKeys) {
+        Map<String, Entry> entries = entriesByProject.get(project);
+        if (entries != null) {
+            entries.keySet().retainAll(methodKeys);
+        }
+    }
+
+    /**
+     * 丢弃指定项目的全部缓存结果，项目关闭时调用
+     */
+    public void clear(Project project) {
+        entriesByProject.remove(project);
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public int size() {
+        return entriesByProject.values().stream().mapToInt(Map::size).sum();
+    }
+
+    /**
+     * 缓存命中率，尚无请求时返回 0
+     */
+    public double hitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0D : (double) h / total;
+    }
+
+    @Override
+    public String toString() {
+        return "hits=%d, misses=%d, hitRate=%.2f%%, size=%d"
+                .formatted(getHits(), getMisses(), hitRate() * 100, size());
+    }
+
+    private record Entry(String path, long stamp, long rootStamp, boolean valid) {
+        private boolean matches(String path, long stamp, long rootStamp) {
+            return this.stamp == stamp
+                    && this.rootStamp == rootStamp
+                    && Objects.equals(this.path, path);
+        }
+    }
+}
@@ -1,18 +1,33 @@
 package com.nju.comment.util;
 
 import com.intellij.codeInsight.AnnotationUtil;
-import com.intellij.openapi.project.Project;
 import com.intellij.codeInsight.ExceptionUtil;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
 import com.intellij.psi.*;
-import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
 import com.intellij.psi.util.MethodSignatureUtil;
+import com.intellij.psi.util.PsiModificationTracker;
 import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.util.TypeConversionUtil;
+import com.nju.comment.metrics.PluginMetrics;
+import com.nju.comment.metrics.event.PipelineEvent;
+import com.nju.comment.metrics.event.ValidationEvent;
 import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
 
 /**
  * PsiMethod 合法性校验工具。
@@ -24,75 +39,181 @@ import java.util.Set;
 @Slf4j
 public final class MethodValidationUtil {
 
+    private static final MethodValidationCache SYNTACTIC_CACHE =
+            new MethodValidationCache(MethodValidationCache.Dependency.FILE);
+    private static final MethodValidationCache SEMANTIC_CACHE =
+            new MethodValidationCache(MethodValidationCache.Dependency.PROJECT);
+    private static final Key<CachedValue<Set<PsiMethod>>> SIGNATURE_COLLISIONS_KEY =
+            Key.create("comment.consistency.signatureCollisions");
+    private static final PluginMetrics METRICS = PluginMetrics.getInstance();
+
+    static {
+        METRICS.registerGauge(PluginMetrics.VALIDATION_SYNTACTIC_CACHE_HITS, SYNTACTIC_CACHE::getHits);
+        METRICS.registerGauge(PluginMetrics.VALIDATION_SYNTACTIC_CACHE_MISSES, SYNTACTIC_CACHE::getMisses);
+        METRICS.registerGauge(PluginMetrics.VALIDATION_SEMANTIC_CACHE_HITS, SEMANTIC_CACHE::getHits);
+        METRICS.registerGauge(PluginMetrics.VALIDATION_SEMANTIC_CACHE_MISSES, SEMANTIC_CACHE::getMisses);
+    }
+
     private MethodValidationUtil() {
     }
 
     /**
-     * 判断方法是否“可编译”。
+     * 判断方法是否“可编译”，依次执行语法层与语义层校验。
      *
      * @param method 目标方法
      * @return 是否合法
      */
     public static boolean isValid(PsiMethod method) {
+        return isSyntacticallyValid(method) && isSemanticallyValid(method);
+    }
+
+    /**
+     * 语法层校验：PSI 有效性、语法错误、方法名、修饰符、方法体有无。不涉及任何引用解析，开销低，
+     * 作为进入状态机前的门槛。结果按方法所在文件的修改戳缓存（语法层只依赖本文件）。
+     *
+     * @param method 目标方法
+     * @return 是否通过语法层校验
+     */
+    public static boolean isSyntacticallyValid(PsiMethod method) {
         if (method == null || !method.isValid()) {
             log.warn("方法为空或 PSI 已失效，无法处理: {}", method);
             return false;
         }
 
-        PsiClass containingClass = method.getContainingClass();
-        if (containingClass == null || !containingClass.isValid()) {
-            log.warn("方法未归属到有效类中，跳过：{}", MethodRecordUtil.buildMethodKey(method));
-            return false;
-        }
+        return SYNTACTIC_CACHE.getOrCompute(method, m -> recordValidation(m, ValidationEvent.TIER_SYNTACTIC,
+                MethodValidationUtil::doValidateSyntax));
+    }
 
-        if (!isMethodNameValid(method, containingClass)) {
+    /**
+     * 语义层校验：类型/引用解析、异常分析、@Override 与签名冲突检查。开销高，
+     * 仅在状态机即将发起注释生成请求时执行。结果按项目 PSI 修改计数缓存。
+     * 调用方需保证方法已通过语法层校验。
+     *
+     * @param method 目标方法
+     * @return 是否通过语义层校验
+     */
+    public static boolean isSemanticallyValid(PsiMethod method) {
+        if (method == null || !method.isValid()) {
+            log.warn("方法为空或 PSI 已失效，无法处理: {}", method);
             return false;
         }
 
-        if (!isModifierValid(method, containingClass)) {
-            return false;
-        }
+        return SEMANTIC_CACHE.getOrCompute(method, m -> recordValidation(m, ValidationEvent.TIER_SEMANTIC,
+                MethodValidationUtil::doValidateSemantics));
+    }
 
-        if (!isReturnTypeValid(method, containingClass)) {
-            return false;
-        }
+    /**
+     * 获取语法层校验结果缓存，用于统计命中率
+     */
+    public static MethodValidationCache getSyntacticCache() {
+        return SYNTACTIC_CACHE;
+    }
 
-        if (!isParameterListValid(method)) {
-            return false;
-        }
+    /**
+     * 获取语义层校验结果缓存，用于统计命中率
+     */
+    public static MethodValidationCache getSemanticCache() {
+        return SEMANTIC_CACHE;
+    }
 
-        if (!isTypeParameterValid(method)) {
-            return false;
-        }
+    /**
+     * 移除指定方法在各层的缓存结果
+     */
+    public static void invalidateCache(String methodKey) {
+        SYNTACTIC_CACHE.invalidate(methodKey);
+        SEMANTIC_CACHE.invalidate(methodKey);
+    }
 
-        if (!isThrowsListValid(method)) {
-            return false;
-        }
+    /**
+     * 各层缓存中指定项目仅保留仍存在的方法
+     */
+    public static void retainCache(Project project, Collection<String> methodKeys) {
+        SYNTACTIC_CACHE.retainAll(project, methodKeys);
+        SEMANTIC_CACHE.retainAll(project, methodKeys);
+    }
 
-        if (!isMethodBodyValid(method, containingClass)) {
-            return false;
-        }
+    /**
+     * 丢弃指定项目在各层的缓存结果，项目关闭时调用
+     */
+    public static void clearCache(Project project) {
+        SYNTACTIC_CACHE.clear(project);
+        SEMANTIC_CACHE.clear(project);
+    }
 
-        if (!areCheckedExceptionsHandledOrDeclared(method)) {
+    /**
+     * 执行语法层校验，不经过缓存
+     */
+    private static boolean doValidateSyntax(PsiMethod method) {
+        PsiClass containingClass = method.getContainingClass();
+        if (containingClass == null || !containingClass.isValid()) {
+            log.warn("方法未归属到有效类中，跳过：{}", MethodRecordUtil.buildMethodKey(method));
             return false;
         }
 
-        if (!isOverrideValid(method)) {
-            return false;
-        }
+        return timed("errorElements", () -> hasNoErrorElements(method))
+                && timed("name", () -> isMethodNameValid(method, containingClass))
+                && timed("modifiers", () -> isModifierValid(method, containingClass))
+                && timed("body", () -> isMethodBodyValid(method, containingClass));
+    }
 
-        if (!isSignatureUniqueInClass(method, containingClass)) {
+    /**
+     * 执行语义层校验，不经过缓存
+     */
+    private static boolean doValidateSemantics(PsiMethod method) {
+        PsiClass containingClass = method.getContainingClass();
+        if (containingClass == null || !containingClass.isValid()) {
+            log.warn("方法未归属到有效类中，跳过：{}", MethodRecordUtil.buildMethodKey(method));
             return false;
         }
 
-        if (!isPsiReferencesResolved(method)) {
-            return false;
-        }
+        return timed("returnType", () -> isReturnTypeValid(method, containingClass))
+                && timed("parameters", () -> isParameterListValid(method))
+                && timed("typeParameters", () -> isTypeParameterValid(method))
+                && timed("throwsList", () -> isThrowsListValid(method))
+                && timed("checkedExceptions", () -> areCheckedExceptionsHandledOrDeclared(method))
+                && timed("override", () -> isOverrideValid(method))
+                && timed("signatureUnique", () -> isSignatureUniqueInClass(method, containingClass))
+                && timed("bodyFacts", () -> areBodyFactsValid(method));
+    }
 
-        if (!isReturnStatementValid(method)) {
+    /**
+     * 执行一层未命中缓存的校验，并发出对应的 JFR 事件
+     */
+    private static boolean recordValidation(PsiMethod method, String tier, Predicate<PsiMethod> validator) {
+        ValidationEvent event = new ValidationEvent();
+        event.begin();
+        boolean valid = validator.test(method);
+        if (event.shouldCommit()) {
+            event.methodKey = MethodRecordUtil.buildMethodKey(method);
+            event.file = MethodRecordUtil.getFilePath(method);
+            event.tier = tier;
+            event.outcome = valid ? PipelineEvent.OUTCOME_OK : PipelineEvent.OUTCOME_INVALID;
+            event.commit();
+        }
+        return valid;
+    }
+
+    /**
+     * 执行单项检查，并按检查项记录耗时与失败次数
+     */
+    private static boolean timed(String check, BooleanSupplier supplier) {
+        long start = System.nanoTime();
+        boolean passed = supplier.getAsBoolean();
+        METRICS.recordSince(PluginMetrics.tagged(PluginMetrics.VALIDATION_CHECK, check), start);
+        if (!passed) {
+            METRICS.increment(PluginMetrics.tagged(PluginMetrics.VALIDATION_FAILED, check));
+        }
+        return passed;
+    }
+
+    /**
+     * 方法子树中不存在语法错误节点
+     */
+    private static boolean hasNoErrorElements(PsiMethod method) {
+        if (PsiTreeUtil.hasErrorElements(method)) {
+            log.warn("方法存在语法错误，跳过：{}", MethodRecordUtil.buildMethodKey(method));
             return false;
         }
-
         return true;
     }
 
@@ -117,16 +238,17 @@ public final class MethodValidationUtil {
             return true;
         }
 
-        // 已声明的 throws 类型
-        PsiClassType[] declared = method.getThrowsList().getReferencedTypes();
+        // 已声明的 throws 类型，只解析一次
+        PsiClassType[] declaredTypes = method.getThrowsList().getReferencedTypes();
+        List<PsiClass> declared = new ArrayList<>(declaredTypes.length);
+        for (PsiClassType decType : declaredTypes) {
+            PsiClass decCls = decType.resolve();
+            if (decCls != null) {
+                declared.add(decCls);
+            }
+        }
 
-        // 基类：RuntimeException 与 Error（未检查异常）
         Project project = method.getProject();
-        PsiClass runtimeEx = JavaPsiFacade.getInstance(project)
-                .findClass(CommonClassNames.JAVA_LANG_RUNTIME_EXCEPTION, GlobalSearchScope.allScope(project));
-        PsiClass errorEx = JavaPsiFacade.getInstance(project)
-                .findClass(CommonClassNames.JAVA_LANG_ERROR, GlobalSearchScope.allScope(project));
-
         for (PsiClassType type : unhandled) {
             PsiClass exCls = type.resolve();
             if (exCls == null) {
@@ -136,22 +258,14 @@ public final class MethodValidationUtil {
             }
 
             // 跳过未检查异常（RuntimeException 与 Error 及其子类）
-            boolean isUnchecked = (runtimeEx != null && exCls.isInheritor(runtimeEx, true))
-                    || (errorEx != null && exCls.isInheritor(errorEx, true))
-                    || CommonClassNames.JAVA_LANG_RUNTIME_EXCEPTION.equals(exCls.getQualifiedName())
-                    || CommonClassNames.JAVA_LANG_ERROR.equals(exCls.getQualifiedName());
-            if (isUnchecked) {
+            if (ExceptionClassCache.isUnchecked(project, exCls)) {
                 continue;
             }
 
             // 检查是否在 throws 声明中被覆盖（父类型也可覆盖子类型）
             boolean covered = false;
-            for (PsiClassType decType : declared) {
-                PsiClass decCls = decType.resolve();
-                if (decCls == null) {
-                    continue;
-                }
-                if (exCls.isInheritor(decCls, true) || exCls.equals(decCls)) {
+            for (PsiClass decCls : declared) {
+                if (ExceptionClassCache.isCoveredBy(project, exCls, decCls)) {
                     covered = true;
                     break;
                 }
@@ -386,8 +500,7 @@ public final class MethodValidationUtil {
         PsiClassType[] thrownTypes = method.getThrowsList().getReferencedTypes();
         Set<String> names = new HashSet<>();
 
-        PsiClass throwableClass = JavaPsiFacade.getInstance(method.getProject())
-                .findClass(CommonClassNames.JAVA_LANG_THROWABLE, GlobalSearchScope.allScope(method.getProject()));
+        PsiClass throwableClass = ExceptionClassCache.getCoreClasses(method.getProject()).throwable();
 
         for (PsiClassType thrownType : thrownTypes) {
             if (!isTypeResolvable(thrownType)) {
@@ -470,102 +583,139 @@ public final class MethodValidationUtil {
 
     /**
      * 校验类内方法签名唯一性，避免与同类方法签名冲突。
+     * 冲突集合按类批量计算并缓存，同一次扫描中该类的所有方法共用。
      */
     private static boolean isSignatureUniqueInClass(PsiMethod method, PsiClass containingClass) {
-        String methodKey = MethodRecordUtil.buildMethodKey(method);
-        PsiMethod[] methods = containingClass.findMethodsByName(method.getName(), false);
-        for (PsiMethod other : methods) {
-            if (other == method) {
-                continue;
-            }
-            if (MethodSignatureUtil.areSignaturesEqual(method, other)) {
-                log.warn("方法签名与同类方法冲突，跳过：{}", methodKey);
-                return false;
-            }
+        if (getSignatureCollisions(containingClass).contains(method)) {
+            log.warn("方法签名与同类方法冲突，跳过：{}", MethodRecordUtil.buildMethodKey(method));
+            return false;
         }
         return true;
     }
 
     /**
-     * PSI 引用解析校验：方法调用、类型引用、一般引用必须可解析。
+     * 获取类中签名冲突的方法集合，PSI 修改后失效重新计算。
      */
-    private static boolean isPsiReferencesResolved(PsiMethod method) {
-        String methodKey = MethodRecordUtil.buildMethodKey(method);
-        if (!PsiTreeUtil.findChildrenOfType(method, PsiErrorElement.class).isEmpty()) {
-            log.warn("方法存在语法错误，跳过：{}", methodKey);
-            return false;
+    private static Set<PsiMethod> getSignatureCollisions(PsiClass psiClass) {
+        return CachedValuesManager.getCachedValue(psiClass, SIGNATURE_COLLISIONS_KEY, () ->
+                CachedValueProvider.Result.create(computeSignatureCollisions(psiClass),
+                        PsiModificationTracker.getInstance(psiClass.getProject())));
+    }
+
+    /**
+     * 一次性计算类中所有签名冲突的方法：先按擦除后的签名分桶，桶内再用精确签名比较确认。
+     */
+    private static Set<PsiMethod> computeSignatureCollisions(PsiClass psiClass) {
+        PsiMethod[] methods = psiClass.getMethods();
+        Map<String, List<PsiMethod>> buckets = new HashMap<>(methods.length * 2);
+        for (PsiMethod method : methods) {
+            buckets.computeIfAbsent(erasedSignatureKey(method), k -> new ArrayList<>(1)).add(method);
         }
 
-        Collection<PsiMethodCallExpression> calls = PsiTreeUtil.findChildrenOfType(method, PsiMethodCallExpression.class);
-        for (PsiMethodCallExpression call : calls) {
-            if (call == null) {
+        Set<PsiMethod> collisions = new HashSet<>();
+        for (List<PsiMethod> bucket : buckets.values()) {
+            if (bucket.size() < 2) {
                 continue;
             }
-            if (call.resolveMethod() == null) {
-                log.warn("方法存在未解析的方法调用，跳过：{}", methodKey);
-                return false;
+            for (int i = 0; i < bucket.size(); i++) {
+                for (int j = i + 1; j < bucket.size(); j++) {
+                    if (MethodSignatureUtil.areSignaturesEqual(bucket.get(i), bucket.get(j))) {
+                        collisions.add(bucket.get(i));
+                        collisions.add(bucket.get(j));
+                    }
+                }
             }
         }
+        return collisions;
+    }
 
-        Collection<PsiJavaCodeReferenceElement> typeRefs = PsiTreeUtil.findChildrenOfType(method, PsiJavaCodeReferenceElement.class);
-        for (PsiJavaCodeReferenceElement typeRef : typeRefs) {
-            if (typeRef == null) {
-                continue;
-            }
-            if (typeRef.resolve() == null) {
-                log.warn("方法存在未解析的类型引用，跳过：{}", methodKey);
-                return false;
+    /**
+     * 擦除后的方法签名，用作分桶键。可变参数按数组类型处理。
+     */
+    private static String erasedSignatureKey(PsiMethod method) {
+        StringBuilder sb = new StringBuilder(method.getName()).append('(');
+        for (PsiParameter parameter : method.getParameterList().getParameters()) {
+            PsiType type = parameter.getType();
+            if (type instanceof PsiEllipsisType ellipsisType) {
+                type = ellipsisType.toArrayType();
             }
+            sb.append(TypeConversionUtil.erasure(type).getCanonicalText()).append(',');
         }
+        return sb.append(')').toString();
+    }
 
-        Collection<PsiReferenceExpression> refs = PsiTreeUtil.findChildrenOfType(method, PsiReferenceExpression.class);
-        for (PsiReferenceExpression ref : refs) {
-            if (ref == null) {
-                continue;
-            }
-            PsiElement resolved = ref.resolve();
-            if (resolved == null) {
-                log.warn("方法包含未解析的引用，跳过：{} -> {}", methodKey, ref.getText());
-                return false;
-            }
+    /**
+     * 方法体事实校验：方法调用/类型引用/一般引用可解析、非 void 方法的 return/throw 语句。
+     * 通过一次 PSI 遍历收集全部事实，遇到第一个失败项即停止遍历。语法错误已由语法层校验覆盖。
+     */
+    private static boolean areBodyFactsValid(PsiMethod method) {
+        String methodKey = MethodRecordUtil.buildMethodKey(method);
+        PsiType returnType = method.getReturnType();
+        boolean requiresReturnValue = returnType != null
+                && !(returnType instanceof PsiPrimitiveType && "void".equals(returnType.getCanonicalText()));
+
+        BodyFactsVisitor visitor = new BodyFactsVisitor(requiresReturnValue);
+        method.accept(visitor);
+
+        if (visitor.failure != null) {
+            log.warn("{}，跳过：{}", visitor.failure, methodKey);
+            return false;
+        }
+
+        // 非 void 方法缺少 return 且无 throw 的情况视为非法（近似控制流判断）
+        if (requiresReturnValue && !visitor.hasReturn && !visitor.hasThrow) {
+            log.warn("非 void 方法缺少 return/throw，跳过：{}", methodKey);
+            return false;
         }
 
         return true;
     }
 
     /**
-     * 非 void 方法的 return 校验：缺少 return 且无 throw 的情况视为非法。
-     * 该校验为“近似控制流”判断，避免明显缺失返回语句的错误。
+     * 单次遍历方法子树的访问器，汇总引用解析与 return/throw 语句信息。
      */
-    private static boolean isReturnStatementValid(PsiMethod method) {
-        String methodKey = MethodRecordUtil.buildMethodKey(method);
-        PsiType returnType = method.getReturnType();
-        if (returnType == null || (returnType instanceof PsiPrimitiveType && "void".equals(returnType.getCanonicalText()))) {
-            return true;
+    private static final class BodyFactsVisitor extends JavaRecursiveElementWalkingVisitor {
+
+        private final boolean requiresReturnValue;
+        private String failure;
+        private boolean hasReturn;
+        private boolean hasThrow;
+
+        private BodyFactsVisitor(boolean requiresReturnValue) {
+            this.requiresReturnValue = requiresReturnValue;
         }
 
-        Collection<PsiReturnStatement> returns = PsiTreeUtil.findChildrenOfType(method, PsiReturnStatement.class);
-        if (returns.isEmpty()) {
-            Collection<PsiThrowStatement> throwsStmts = PsiTreeUtil.findChildrenOfType(method, PsiThrowStatement.class);
-            if (throwsStmts.isEmpty()) {
-                log.warn("非 void 方法缺少 return/throw，跳过：{}", methodKey);
-                return false;
+        @Override
+        public void visitElement(@NotNull PsiElement element) {
+            if (element instanceof PsiMethodCallExpression call && call.resolveMethod() == null) {
+                fail("方法存在未解析的方法调用");
+                return;
             }
-            return true;
-        }
 
-        for (PsiReturnStatement rs : returns) {
-            if (rs == null) {
-                continue;
+            if (element instanceof PsiJavaCodeReferenceElement ref && ref.resolve() == null) {
+                fail(ref instanceof PsiReferenceExpression
+                        ? "方法包含未解析的引用 -> " + ref.getText()
+                        : "方法存在未解析的类型引用");
+                return;
             }
-            PsiExpression rv = rs.getReturnValue();
-            if (rv == null) {
-                log.warn("非 void 方法存在空 return 语句，跳过：{}", methodKey);
-                return false;
+
+            if (element instanceof PsiReturnStatement rs) {
+                hasReturn = true;
+                if (requiresReturnValue && rs.getReturnValue() == null) {
+                    fail("非 void 方法存在空 return 语句");
+                    return;
+                }
+            } else if (element instanceof PsiThrowStatement) {
+                hasThrow = true;
             }
+
+            super.visitElement(element);
         }
 
-        return true;
+        private void fail(String reason) {
+            failure = reason;
+            stopWalking();
+        }
     }
 
     /**
@@ -0,0 +1,205 @@
+package com.nju.comment.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 按行生成与应用 unified diff 的工具。
+ * <p>
+ * 先裁掉公共前缀与后缀，只对中间差异区做 LCS，单行修改的长方法几乎没有额外开销；
+ * 差异区过大（行数乘积超过上限）时放弃生成，由调用方回退为全文。
+ */
+public final class UnifiedDiffUtil {
+
+    private static final int CONTEXT_LINES = 3;
+
+    private UnifiedDiffUtil() {
+    }
+
+    /**
+     * 生成从 oldText 到 newText 的 unified diff
+     *
+     * @param oldText  原文本
+     * @param newText  新文本
+     * @param maxCells 差异区 LCS 表格的最大单元数
+     * @return diff 文本；两者相同时为空串；差异区超过上限时为 null
+     */
+    public static String diff(String oldText, String newText, long maxCells) {
+        String[] a = splitLines(oldText);
+        String[] b = splitLines(newText);
+
+        int prefix = 0;
+        while (prefix < a.length && prefix < b.length && a[prefix].equals(b[prefix])) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < a.length - prefix && suffix < b.length - prefix
+                && a[a.length - 1 - suffix].equals(b[b.length - 1 - suffix])) {
+            suffix++;
+        }
+        if (prefix == a.length && prefix == b.length) {
+            return "";
+        }
+
+        int n = a.length - prefix - suffix;
+        int m = b.length - prefix - suffix;
+        if ((long) (n + 1) * (m + 1) > maxCells) {
+            return null;
+        }
+
+        List<Op> ops = new ArrayList<>(a.length + m);
+        for (int i = 0; i < prefix; i++) {
+            ops.add(new Op(' ', a[i]));
+        }
+        ops.addAll(lcsOps(a, prefix, n, b, prefix, m));
+        for (int i = a.length - suffix; i < a.length; i++) {
+            ops.add(new Op(' ', a[i]));
+        }
+        return formatHunks(ops);
+    }
+
+    /**
+     * 将 unified diff 应用到原文本
+     *
+     * @return 应用后的文本；diff 与原文本不匹配时抛出 IllegalArgumentException
+     */
+    public static String apply(String oldText, String diff) {
+        String[] a = splitLines(oldText);
+        if (diff == null || diff.isEmpty()) {
+            return String.join("\n", a);
+        }
+
+        List<String> result = new ArrayList<>(a.length);
+        int cursor = 0;
+        String[] lines = diff.split("\n", -1);
+        int i = 0;
+        while (i < lines.length) {
+            String line = lines[i];
+            if (!line.startsWith("@@")) {
+                i++;
+                continue;
+            }
+            int oldStart = Integer.parseInt(line.substring(4, line.indexOf(',', 4))) - 1;
+            oldStart = Math.max(oldStart, 0);
+            while (cursor < oldStart) {
+                result.add(a[cursor++]);
+            }
+            i++;
+            while (i < lines.length && !lines[i].startsWith("@@")) {
+                String body = lines[i];
+                if (body.isEmpty()) {
+                    i++;
+                    continue;
+                }
+                char tag = body.charAt(0);
+                String content = body.substring(1);
+                switch (tag) {
+                    case ' ', '-' -> {
+                        if (cursor >= a.length || !a[cursor].equals(content)) {
+                            throw new IllegalArgumentException("diff 与原文本不匹配，行号：" + (cursor + 1));
+                        }
+                        if (tag == ' ') {
+                            result.add(content);
+                        }
+                        cursor++;
+                    }
+                    case '+' -> result.add(content);
+                    default -> throw new IllegalArgumentException("非法的 diff 行：" + body);
+                }
+                i++;
+            }
+        }
+        while (cursor < a.length) {
+            result.add(a[cursor++]);
+        }
+        return String.join("\n", result);
+    }
+
+    private static String[] splitLines(String text) {
+        if (text == null || text.isEmpty()) {
+            return new String[0];
+        }
+        return text.split("\n", -1);
+    }
+
+    /**
+     * 对差异区做 LCS，回溯得到删除/新增/保留操作序列
+     */
+    private static List<Op> lcsOps(String[] a, int aOff, int n, String[] b, int bOff, int m) {
+        int[][] lcs = new int[n + 1][m + 1];
+        for (int i = n - 1; i >= 0; i--) {
+            for (int j = m - 1; j >= 0; j--) {
+                lcs[i][j] = a[aOff + i].equals(b[bOff + j])
+                        ? lcs[i + 1][j + 1] + 1
+                        : Math.max(lcs[i + 1][j], lcs[i][j + 1]);
+            }
+        }
+
+        List<Op> ops = new ArrayList<>(n + m);
+        int i = 0;
+        int j = 0;
+        while (i < n && j < m) {
+            if (a[aOff + i].equals(b[bOff + j])) {
+                ops.add(new Op(' ', a[aOff + i]));
+                i++;
+                j++;
+            } else if (lcs[i + 1][j] >= lcs[i][j + 1]) {
+                ops.add(new Op('-', a[aOff + i++]));
+            } else {
+                ops.add(new Op('+', b[bOff + j++]));
+            }
+        }
+        while (i < n) {
+            ops.add(new Op('-', a[aOff + i++]));
+        }
+        while (j < m) {
+            ops.add(new Op('+', b[bOff + j++]));
+        }
+        return ops;
+    }
+
+    /**
+     * 将操作序列按上下文行数切分为若干 hunk 并格式化
+     */
+    private static String formatHunks(List<Op> ops) {
+        int[] oldLine = new int[ops.size() + 1];
+        int[] newLine = new int[ops.size() + 1];
+        for (int k = 0; k < ops.size(); k++) {
+            char tag = ops.get(k).tag;
+            oldLine[k + 1] = oldLine[k] + (tag == '+' ? 0 : 1);
+            newLine[k + 1] = newLine[k] + (tag == '-' ? 0 : 1);
+        }
+
+        boolean[] inHunk = new boolean[ops.size()];
+        for (int k = 0; k < ops.size(); k++) {
+            if (ops.get(k).tag != ' ') {
+                Arrays.fill(inHunk, Math.max(0, k - CONTEXT_LINES), Math.min(ops.size(), k + CONTEXT_LINES + 1), true);
+            }
+        }
+
+        StringBuilder sb = new StringBuilder();
+        int k = 0;
+        while (k < ops.size()) {
+            if (!inHunk[k]) {
+                k++;
+                continue;
+            }
+            int start = k;
+            while (k < ops.size() && inHunk[k]) {
+                k++;
+            }
+            sb.append("@@ -").append(oldLine[start] + 1).append(',').append(oldLine[k] - oldLine[start])
+                    .append(" +").append(newLine[start] + 1).append(',').append(newLine[k] - newLine[start])
+                    .append(" @@\n");
+            for (int t = start; t < k; t++) {
+                Op op = ops.get(t);
+                sb.append(op.tag).append(op.line).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    private record Op(char tag, String line) {
+    }
+}
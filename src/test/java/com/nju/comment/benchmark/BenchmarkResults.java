@@ -0,0 +1,50 @@
+package com.nju.comment.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 基准结果输出与通用测量工具。
+ * <p>
+ * 结果以 JSON 写入系统属性 benchmark.resultsDir 指定的目录（默认 build/reports/benchmark）。
+ */
+final class BenchmarkResults {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private BenchmarkResults() {
+    }
+
+    /**
+     * 将结果写入 {name}.json
+     */
+    static Path write(String name, Object result) throws IOException {
+        Path dir = Path.of(System.getProperty("benchmark.resultsDir", "build/reports/benchmark"));
+        Files.createDirectories(dir);
+        Path file = dir.resolve(name + ".json");
+        MAPPER.writeValue(file.toFile(), result);
+        return file;
+    }
+
+    /**
+     * 所有存活线程累计分配的字节数。已结束线程的分配无法统计，结果为近似值。
+     */
+    static long allocatedBytes() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean)
+                || !bean.isThreadAllocatedMemorySupported()) {
+            return -1;
+        }
+        long total = 0;
+        for (long bytes : bean.getThreadAllocatedBytes(bean.getAllThreadIds())) {
+            if (bytes > 0) {
+                total += bytes;
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,319 @@
+package com.nju.comment.benchmark;
+
+import com.intellij.testFramework.fixtures.BasePlatformTestCase;
+import com.nju.comment.client.PluginCommentClient;
+import com.nju.comment.client.global.CommentGeneratorClient;
+import com.nju.comment.dto.GenerateOptions;
+import com.nju.comment.dto.MethodContext;
+import com.nju.comment.dto.request.CommentRequest;
+import com.nju.comment.dto.response.CommentResponse;
+import com.nju.comment.stub.StubCommentServer;
+import com.nju.comment.stub.StubCommentServer.LatencyDistribution;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 针对服务桩的客户端负载与在途去重基准。
+ * <p>
+ * 1. 对数正态延迟 + 错误注入下，PluginCommentClient 的吞吐、延迟分位与失败数；
+ * 2. 慢速返回响应体时的端到端延迟；
+ * 3. CommentGeneratorClient 在途去重与静默期门控：同内容重复触发只发一次，内容连续变更时只发送最终内容（逐个或批量取消）；
+ * 4. 长方法单行修改时，diff 负载与全文负载的上传字节数对比；
+ * 5. 全文负载开启与关闭 gzip 时的上下行字节数与总耗时对比；
+ * 6. 后端完全不可用时，重试预算与熔断器对请求放大倍数的约束；
+ * 7. 两个长尾延迟实例之间负载均衡，开启与关闭对冲请求时的尾延迟对比。
+ * 运行方式：./gradlew test -Pbenchmark
+ */
+public class ClientLoadBenchmark extends BasePlatformTestCase {
+
+    private static final int REQUESTS = 2_000;
+    private static final int DEDUP_METHODS = 200;
+    private static final int DEDUP_REPEATS = 5;
+    private static final long TIMEOUT_S = 300;
+    private static final int DIFF_METHOD_LINES = 400;
+    private static final int DIFF_REQUESTS = 200;
+    private static final int OUTAGE_REQUESTS = 500;
+
+    public void testLoadWithLatencyAndErrors() throws Exception {
+        try (StubCommentServer stub = StubCommentServer.builder()
+                .latency(LatencyDistribution.logNormal(Duration.ofMillis(50), 0.8))
+                .httpErrorRate(0.02)
+                .failureRate(0.03)
+                .start()) {
+            BenchmarkResults.write("client-load-lognormal", runLoad(stub));
+        }
+    }
+
+    public void testLoadWithSlowDrip() throws Exception {
+        try (StubCommentServer stub = StubCommentServer.builder()
+                .latency(LatencyDistribution.fixed(Duration.ofMillis(10)))
+                .slowDrip(16, Duration.ofMillis(2))
+                .start()) {
+            BenchmarkResults.write("client-load-slow-drip", runLoad(stub));
+        }
+    }
+
+    public void testHedgingAcrossEndpoints() throws Exception {
+        try (StubCommentServer a = StubCommentServer.builder()
+                .latency(LatencyDistribution.logNormal(Duration.ofMillis(50), 1.2))
+                .start();
+             StubCommentServer b = StubCommentServer.builder()
+                     .latency(LatencyDistribution.logNormal(Duration.ofMillis(50), 1.2))
+                     .start()) {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("noHedge", runLoad(a, b, false));
+            a.resetCounters();
+            b.resetCounters();
+            result.put("hedge", runLoad(a, b, true));
+            BenchmarkResults.write("client-hedging", result);
+        }
+    }
+
+    private Map<String, Object> runLoad(StubCommentServer a, StubCommentServer b, boolean hedging) throws Exception {
+        PluginCommentClient client = PluginCommentClient.builder()
+                .baseUrls(List.of(a.baseUrl(), b.baseUrl()))
+                .hedging(hedging)
+                .requestTimeout(Duration.ofSeconds(30))
+                .build();
+        Map<String, Object> result = runLoad(client);
+        result.put("backendCalls", a.getGenerateRequests() + b.getGenerateRequests());
+        result.put("cancelledGenerations", a.getCancelledGenerations() + b.getCancelledGenerations());
+        return result;
+    }
+
+    public void testRetryBudgetUnderOutage() throws Exception {
+        try (StubCommentServer stub = StubCommentServer.builder().httpErrorRate(1.0).start()) {
+            PluginCommentClient client = PluginCommentClient.builder()
+                    .baseUrl(stub.baseUrl())
+                    .retryBackoff(Duration.ofMillis(1), Duration.ofMillis(10))
+                    .build();
+            try {
+                List<CompletableFuture<CommentResponse>> futures = new ArrayList<>(OUTAGE_REQUESTS);
+                for (int i = 0; i < OUTAGE_REQUESTS; i++) {
+                    futures.add(client.generateComment(CommentRequest.builder()
+                            .oldMethod("int g" + i + "() {}")
+                            .oldComment("/** g */")
+                            .newMethod("int g" + i + "() { return 1; }")
+                            .modelName(StubCommentServer.MODEL)
+                            .clientRequestId(UUID.randomUUID().toString())
+                            .build()));
+                }
+                CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                        .handle((r, ex) -> null)
+                        .get(TIMEOUT_S, TimeUnit.SECONDS);
+
+                Map<String, Object> result = new LinkedHashMap<>();
+                result.put("requests", OUTAGE_REQUESTS);
+                result.put("backendCalls", stub.getGenerateRequests());
+                result.put("amplification", stub.getGenerateRequests() / (double) OUTAGE_REQUESTS);
+                result.put("circuitState", client.getCircuitState().name());
+                BenchmarkResults.write("client-retry-outage", result);
+            } finally {
+                client.shutdown();
+            }
+        }
+    }
+
+    public void testInFlightDedup() throws Exception {
+        BenchmarkResults.write("client-inflight-dedup", runDedup(List.of()));
+    }
+
+    public void testInFlightDedupWithBatchCancel() throws Exception {
+        BenchmarkResults.write("client-inflight-dedup-batch-cancel",
+                runDedup(List.of(PluginCommentClient.CAPABILITY_CANCEL_BATCH)));
+    }
+
+    private Map<String, Object> runDedup(List<String> capabilities) throws Exception {
+        try (StubCommentServer stub = StubCommentServer.builder()
+                .latency(LatencyDistribution.fixed(Duration.ofMillis(500)))
+                .capabilities(capabilities)
+                .start()) {
+            CommentGeneratorClient.shutdown();
+            CommentGeneratorClient.init(stub.baseUrl());
+            try {
+                // 先获取模型列表以完成能力协商
+                CommentGeneratorClient.getAvailableModels();
+                stub.resetCounters();
+
+                GenerateOptions options = new GenerateOptions(StubCommentServer.MODEL);
+
+                // 同内容重复触发：每个方法只应发出一次请求
+                CountDownLatch sameContent = new CountDownLatch(DEDUP_METHODS * DEDUP_REPEATS);
+                for (int m = 0; m < DEDUP_METHODS; m++) {
+                    MethodContext ctx = new MethodContext("int m" + m + "() {}", "/** m */", "int m" + m + "() { return 1; }");
+                    for (int r = 0; r < DEDUP_REPEATS; r++) {
+                        CommentGeneratorClient.generateCommentAsync("dedup#m" + m, ctx, options, c -> sameContent.countDown());
+                        // 等待首个请求登记为在途后再重复触发
+                        Thread.sleep(r == 0 ? 5 : 0);
+                    }
+                }
+                assertTrue(sameContent.await(TIMEOUT_S, TimeUnit.SECONDS));
+                long sameContentCalls = stub.getGenerateRequests();
+
+                // 内容变更后再触发：以最近为准，取消在途请求
+                stub.resetCounters();
+                CountDownLatch changedContent = new CountDownLatch(DEDUP_METHODS * DEDUP_REPEATS);
+                for (int m = 0; m < DEDUP_METHODS; m++) {
+                    for (int r = 0; r < DEDUP_REPEATS; r++) {
+                        MethodContext ctx = new MethodContext("int c" + m + "() {}", "/** c */", "int c" + m + "() { return " + r + "; }");
+                        CommentGeneratorClient.generateCommentAsync("changed#c" + m, ctx, options, c -> changedContent.countDown());
+                        Thread.sleep(5);
+                    }
+                }
+                assertTrue(changedContent.await(TIMEOUT_S, TimeUnit.SECONDS));
+
+                Map<String, Object> result = new LinkedHashMap<>();
+                result.put("methods", DEDUP_METHODS);
+                result.put("repeats", DEDUP_REPEATS);
+                result.put("sameContentBackendCalls", sameContentCalls);
+                result.put("changedContentBackendCalls", stub.getGenerateRequests());
+                result.put("changedContentCancelRequests", stub.getCancelRequests());
+                result.put("changedContentCancelBatchRequests", stub.getCancelBatchRequests());
+                result.put("changedContentCancelledGenerations", stub.getCancelledGenerations());
+                return result;
+            } finally {
+                CommentGeneratorClient.shutdown();
+            }
+        }
+    }
+
+    public void testDiffPayloadBytes() throws Exception {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("methodLines", DIFF_METHOD_LINES);
+        result.put("requests", DIFF_REQUESTS);
+        result.put("full", measurePayloadBytes(List.of()));
+        result.put("diff", measurePayloadBytes(List.of(CommentRequest.FORMAT_UNIFIED_DIFF)));
+        BenchmarkResults.write("client-diff-payload", result);
+    }
+
+    public void testGzipPayloadBytes() throws Exception {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("methodLines", DIFF_METHOD_LINES);
+        result.put("requests", DIFF_REQUESTS);
+        try (StubCommentServer stub = StubCommentServer.builder().start()) {
+            result.put("plain", measurePayloadBytes(stub));
+        }
+        try (StubCommentServer stub = StubCommentServer.builder().gzip(true).start()) {
+            result.put("gzip", measurePayloadBytes(stub));
+        }
+        BenchmarkResults.write("client-gzip-payload", result);
+    }
+
+    private Map<String, Object> measurePayloadBytes(List<String> capabilities) throws Exception {
+        try (StubCommentServer stub = StubCommentServer.builder().capabilities(capabilities).start()) {
+            return measurePayloadBytes(stub);
+        }
+    }
+
+    private Map<String, Object> measurePayloadBytes(StubCommentServer stub) throws Exception {
+        PluginCommentClient client = PluginCommentClient.builder().baseUrl(stub.baseUrl()).build();
+        try {
+            // 先获取模型列表以完成能力协商
+            client.getAvailableModels().get(TIMEOUT_S, TimeUnit.SECONDS);
+            stub.resetCounters();
+
+            StringBuilder sb = new StringBuilder("int big() {\n");
+            for (int i = 0; i < DIFF_METHOD_LINES; i++) {
+                sb.append("    int v").append(i).append(" = compute(").append(i).append(");\n");
+            }
+            String oldMethod = sb.append("    return 0;\n}").toString();
+
+            List<CompletableFuture<CommentResponse>> futures = new ArrayList<>(DIFF_REQUESTS);
+            long start = System.nanoTime();
+            for (int i = 0; i < DIFF_REQUESTS; i++) {
+                String newMethod = oldMethod.replace("compute(" + i + ");", "compute(" + i + ") + 1;");
+                futures.add(client.generateComment(CommentRequest.builder()
+                        .oldMethod(oldMethod)
+                        .oldComment("/** big */")
+                        .newMethod(newMethod)
+                        .modelName(StubCommentServer.MODEL)
+                        .clientRequestId(UUID.randomUUID().toString())
+                        .build()));
+            }
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(TIMEOUT_S, TimeUnit.SECONDS);
+            long totalNanos = System.nanoTime() - start;
+            assertEquals(0, stub.getDiffApplyFailures());
+
+            Map<String, Object> phase = new LinkedHashMap<>();
+            phase.put("totalMillis", TimeUnit.NANOSECONDS.toMillis(totalNanos));
+            phase.put("requestBytes", stub.getRequestBytes());
+            phase.put("responseBytes", stub.getResponseBytes());
+            phase.put("diffRequests", stub.getDiffRequests());
+            phase.put("gzipRequests", stub.getGzipRequests());
+            phase.put("gzipResponses", stub.getGzipResponses());
+            return phase;
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    private Map<String, Object> runLoad(StubCommentServer stub) throws Exception {
+        PluginCommentClient client = PluginCommentClient.builder()
+                .baseUrl(stub.baseUrl())
+                .requestTimeout(Duration.ofSeconds(30))
+                .build();
+        Map<String, Object> result = runLoad(client);
+        result.put("injectedErrors", stub.getInjectedErrors());
+        result.put("backendCalls", stub.getGenerateRequests());
+        result.put("peakServerConcurrency", stub.getPeakActiveRequests());
+        return result;
+    }
+
+    private Map<String, Object> runLoad(PluginCommentClient client) throws Exception {
+        try {
+            long[] latencies = new long[REQUESTS];
+            AtomicInteger failures = new AtomicInteger();
+            List<CompletableFuture<CommentResponse>> futures = new ArrayList<>(REQUESTS);
+            long start = System.nanoTime();
+            for (int i = 0; i < REQUESTS; i++) {
+                int index = i;
+                long sent = System.nanoTime();
+                CommentRequest request = CommentRequest.builder()
+                        .oldMethod("int f" + i + "() {}")
+                        .oldComment("/** f */")
+                        .newMethod("int f" + i + "() { return " + i + "; }")
+                        .modelName(StubCommentServer.MODEL)
+                        .clientRequestId(UUID.randomUUID().toString())
+                        .build();
+                futures.add(client.generateComment(request).whenComplete((r, ex) -> {
+                    latencies[index] = System.nanoTime() - sent;
+                    if (ex != null || r == null || !r.isSuccess()) {
+                        failures.incrementAndGet();
+                    }
+                }));
+            }
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                    .handle((r, ex) -> null)
+                    .get(TIMEOUT_S, TimeUnit.SECONDS);
+            long totalNanos = System.nanoTime() - start;
+
+            Arrays.sort(latencies);
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("requests", REQUESTS);
+            result.put("totalMillis", TimeUnit.NANOSECONDS.toMillis(totalNanos));
+            result.put("throughputPerSecond", REQUESTS * 1_000_000_000D / totalNanos);
+            result.put("p50Millis", percentileMillis(latencies, 0.50));
+            result.put("p95Millis", percentileMillis(latencies, 0.95));
+            result.put("p99Millis", percentileMillis(latencies, 0.99));
+            result.put("failures", failures.get());
+            return result;
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    private static long percentileMillis(long[] sorted, double p) {
+        int index = Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1);
+        return TimeUnit.NANOSECONDS.toMillis(sorted[Math.max(0, index)]);
+    }
+}
@@ -0,0 +1,59 @@
+package com.nju.comment.benchmark;
+
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiJavaFile;
+import com.intellij.psi.PsiMethod;
+import com.intellij.testFramework.fixtures.LightJavaCodeInsightFixtureTestCase;
+import com.nju.comment.util.MethodRecordUtil;
+import com.nju.comment.util.MethodValidationUtil;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 超长方法的校验开销基准（不经过校验缓存），覆盖单次遍历的方法体引用解析与语句检查。
+ * 运行方式：./gradlew test -Pbenchmark
+ */
+public class LargeMethodValidationBenchmark extends LightJavaCodeInsightFixtureTestCase {
+
+    private static final int[] STATEMENTS = {500, 2_000, 8_000};
+    private static final int WARMUP = 5;
+    private static final int ITERATIONS = 20;
+
+    public void testValidateLargeMethods() throws Exception {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (int statements : STATEMENTS) {
+            String className = "Large" + statements;
+            PsiJavaFile file = (PsiJavaFile) myFixture.addFileToProject(SyntheticProject.PACKAGE + "/" + className + ".java",
+                    SyntheticProject.largeMethodClassText(className, statements));
+            PsiMethod method = ReadAction.compute(() -> {
+                PsiClass psiClass = file.getClasses()[0];
+                return psiClass.findMethodsByName("large", false)[0];
+            });
+            String methodKey = MethodRecordUtil.buildMethodKey(method);
+
+            for (int i = 0; i < WARMUP; i++) {
+                validateUncached(method, methodKey);
+            }
+            long start = System.nanoTime();
+            boolean valid = true;
+            for (int i = 0; i < ITERATIONS; i++) {
+                valid &= validateUncached(method, methodKey);
+            }
+            long avgMicros = (System.nanoTime() - start) / ITERATIONS / 1_000;
+            assertTrue("合成方法应通过校验：" + className, valid);
+
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("statements", statements);
+            entry.put("avgMicros", avgMicros);
+            result.put(className, entry);
+        }
+        BenchmarkResults.write("validation-large-methods", result);
+    }
+
+    private static boolean validateUncached(PsiMethod method, String methodKey) {
+        MethodValidationUtil.invalidateCache(methodKey);
+        return ReadAction.compute(() -> MethodValidationUtil.isValid(method));
+    }
+}
@@ -0,0 +1,159 @@
+package com.nju.comment.benchmark;
+
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiFile;
+import com.intellij.testFramework.PlatformTestUtil;
+import com.intellij.testFramework.fixtures.LightJavaCodeInsightFixtureTestCase;
+import com.nju.comment.client.global.CommentGeneratorClient;
+import com.nju.comment.dto.MethodRecord;
+import com.nju.comment.history.MethodHistoryRepositoryImpl;
+import com.nju.comment.service.PluginProjectService;
+import com.nju.comment.service.ScanStatistics;
+import com.nju.comment.stub.StubCommentServer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PluginProjectService.refreshAllMethodHistories 端到端基准。
+ * <p>
+ * 在合成项目（1k/10k/50k 个带注释方法）上依次执行三轮全量扫描：
+ * cold（全部为新方法）、warm（无修改）、edited（10% 方法体被修改，触发生成请求），
+ * 记录扫描耗时、后端请求全部返回的耗时、读锁持有时间、分配字节数与后端请求次数。
+ * 运行方式：./gradlew test -Pbenchmark
+ */
+public class RefreshPipelineBenchmark extends LightJavaCodeInsightFixtureTestCase {
+
+    private static final int METHODS_PER_FILE = 50;
+    private static final int EDIT_RATIO = 10;
+    private static final long SCAN_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(10);
+    private static final long SETTLE_QUIET_MS = 500;
+
+    private StubCommentServer stub;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        stub = StubCommentServer.start();
+        CommentGeneratorClient.shutdown();
+        CommentGeneratorClient.init(stub.baseUrl());
+        CommentGeneratorClient.setSelectedModel(StubCommentServer.MODEL);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        try {
+            CommentGeneratorClient.shutdown();
+            if (stub != null) {
+                stub.close();
+            }
+            MethodHistoryRepositoryImpl repository = MethodHistoryRepositoryImpl.getInstance();
+            for (MethodRecord record : repository.findAll()) {
+                repository.deleteByKey(record.getKey());
+            }
+        } finally {
+            super.tearDown();
+        }
+    }
+
+    public void testRefresh1kMethods() throws Exception {
+        runScenario(1_000);
+    }
+
+    public void testRefresh10kMethods() throws Exception {
+        runScenario(10_000);
+    }
+
+    public void testRefresh50kMethods() throws Exception {
+        runScenario(50_000);
+    }
+
+    private void runScenario(int methods) throws Exception {
+        int fileCount = methods / METHODS_PER_FILE;
+        List<PsiFile> files = new ArrayList<>(fileCount);
+        for (int f = 0; f < fileCount; f++) {
+            files.add(myFixture.addFileToProject(SyntheticProject.relativePath(f),
+                    SyntheticProject.classText(f, METHODS_PER_FILE, i -> false)));
+        }
+
+        PluginProjectService service = getProject().getService(PluginProjectService.class);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("methods", methods);
+        result.put("files", fileCount);
+        result.put("cold", measureScan(service));
+        result.put("warm", measureScan(service));
+
+        editMethods(files);
+        result.put("edited", measureScan(service));
+
+        BenchmarkResults.write("refresh-" + methods, result);
+    }
+
+    /**
+     * 修改每个文件中 1/EDIT_RATIO 的方法体
+     */
+    private void editMethods(List<PsiFile> files) {
+        PsiDocumentManager documentManager = PsiDocumentManager.getInstance(getProject());
+        WriteCommandAction.runWriteCommandAction(getProject(), () -> {
+            for (int f = 0; f < files.size(); f++) {
+                Document document = documentManager.getDocument(files.get(f));
+                if (document != null) {
+                    document.setText(SyntheticProject.classText(f, METHODS_PER_FILE, i -> i % EDIT_RATIO == 0));
+                }
+            }
+            documentManager.commitAllDocuments();
+        });
+    }
+
+    private Map<String, Object> measureScan(PluginProjectService service) throws Exception {
+        ScanStatistics.Snapshot statsBefore = service.getScanStatistics().snapshot();
+        long requestsBefore = stub.getGenerateRequests();
+        long allocatedBefore = BenchmarkResults.allocatedBytes();
+        long start = System.nanoTime();
+
+        PlatformTestUtil.waitForFuture(service.refreshAllMethodHistories(), SCAN_TIMEOUT_MS);
+        long scanNanos = System.nanoTime() - start;
+
+        waitForBackendIdle();
+        long settleNanos = System.nanoTime() - start;
+
+        long allocatedAfter = BenchmarkResults.allocatedBytes();
+        ScanStatistics.Snapshot stats = service.getScanStatistics().snapshot().minus(statsBefore);
+
+        Map<String, Object> phase = new LinkedHashMap<>();
+        phase.put("scanMillis", TimeUnit.NANOSECONDS.toMillis(scanNanos));
+        phase.put("settleMillis", TimeUnit.NANOSECONDS.toMillis(settleNanos));
+        phase.put("readLockMillis", TimeUnit.NANOSECONDS.toMillis(stats.readLockNanos()));
+        phase.put("methodsVisited", stats.methodsVisited());
+        phase.put("filesVisited", stats.filesVisited());
+        phase.put("allocatedBytes", allocatedBefore < 0 ? -1 : allocatedAfter - allocatedBefore);
+        phase.put("backendCalls", stub.getGenerateRequests() - requestsBefore);
+        return phase;
+    }
+
+    /**
+     * 等待后端请求全部返回：服务桩无活动请求，且请求计数在一段静默期内不再增长
+     */
+    private void waitForBackendIdle() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + SCAN_TIMEOUT_MS;
+        long lastCount = -1;
+        long stableSince = System.currentTimeMillis();
+        while (System.currentTimeMillis() < deadline) {
+            PlatformTestUtil.dispatchAllEventsInIdeEventQueue();
+            long count = stub.getGenerateRequests();
+            if (count != lastCount || stub.getActiveRequests() > 0) {
+                lastCount = count;
+                stableSince = System.currentTimeMillis();
+            } else if (System.currentTimeMillis() - stableSince >= SETTLE_QUIET_MS) {
+                return;
+            }
+            Thread.sleep(20);
+        }
+        fail("后端请求未在超时时间内全部返回");
+    }
+}
@@ -0,0 +1,90 @@
+package com.nju.comment.benchmark;
+
+import java.util.function.IntPredicate;
+
+/**
+ * 生成合成 Java 源码的工具。内容完全由参数决定，不含随机因素，保证基准结果可复现。
+ */
+final class SyntheticProject {
+
+    static final String PACKAGE = "bench";
+
+    private SyntheticProject() {
+    }
+
+    static String className(int fileIndex) {
+        return "Gen" + fileIndex;
+    }
+
+    static String relativePath(int fileIndex) {
+        return PACKAGE + "/" + className(fileIndex) + ".java";
+    }
+
+    /**
+     * 生成一个包含若干带注释方法的类，edited 为 true 的方法体会带有额外的修改。
+     *
+     * @param fileIndex 文件序号
+     * @param methods   带注释方法数量
+     * @param edited    判断第 i 个方法是否被修改
+     */
+    static String classText(int fileIndex, int methods, IntPredicate edited) {
+        StringBuilder sb = new StringBuilder(methods * 260);
+        sb.append("package ").append(PACKAGE).append(";\n\n");
+        sb.append("public class ").append(className(fileIndex)).append(" {\n\n");
+        sb.append("    private int counter;\n\n");
+        for (int i = 0; i < methods; i++) {
+            sb.append("    /**\n");
+            sb.append("     * Computes value ").append(i).append(" of ").append(className(fileIndex)).append(".\n");
+            sb.append("     *\n");
+            sb.append("     * @param input the input value\n");
+            sb.append("     * @return the computed value\n");
+            sb.append("     */\n");
+            sb.append("    public int method").append(i).append("(int input) {\n");
+            sb.append("        int local = input * ").append(i + 1).append(" + counter;\n");
+            sb.append("        if (local > ").append(i).append(") {\n");
+            sb.append("            local = helper(local);\n");
+            sb.append("        }\n");
+            if (edited.test(i)) {
+                sb.append("        counter += local % 7;\n");
+            }
+            sb.append("        return local;\n");
+            sb.append("    }\n\n");
+        }
+        sb.append("    private int helper(int value) {\n");
+        sb.append("        return value / 2;\n");
+        sb.append("    }\n");
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    /**
+     * 生成一个只包含单个超长方法的类，用于校验开销基准
+     *
+     * @param className  类名
+     * @param statements 方法体语句数量
+     */
+    static String largeMethodClassText(String className, int statements) {
+        StringBuilder sb = new StringBuilder(statements * 80);
+        sb.append("package ").append(PACKAGE).append(";\n\n");
+        sb.append("public class ").append(className).append(" {\n\n");
+        sb.append("    private int counter;\n\n");
+        sb.append("    private int helper(int value) throws Exception {\n");
+        sb.append("        if (value < 0) throw new Exception(\"negative\");\n");
+        sb.append("        return value / 2;\n");
+        sb.append("    }\n\n");
+        sb.append("    public int large(int input) throws Exception {\n");
+        sb.append("        int local = input;\n");
+        for (int i = 0; i < statements; i++) {
+            switch (i % 4) {
+                case 0 -> sb.append("        local = helper(local + ").append(i).append(");\n");
+                case 1 -> sb.append("        counter += local % ").append(i + 1).append(";\n");
+                case 2 -> sb.append("        if (local > counter) { local -= counter; }\n");
+                default -> sb.append("        String s").append(i).append(" = String.valueOf(local);\n");
+            }
+        }
+        sb.append("        return local;\n");
+        sb.append("    }\n");
+        sb.append("}\n");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,108 @@
+package com.nju.comment.client;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class CircuitBreakerTest {
+
+    private static final Duration OPEN_DURATION = Duration.ofSeconds(30);
+
+    private final AtomicLong now = new AtomicLong();
+    private final CircuitBreaker breaker = new CircuitBreaker(3, OPEN_DURATION, now::get);
+
+    @Test
+    public void opensAfterConsecutiveFailures() {
+        failTimes(2);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        failTimes(1);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    public void successResetsFailureCount() {
+        failTimes(2);
+        assertTrue(breaker.tryAcquire());
+        breaker.onSuccess();
+        failTimes(2);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void halfOpenAdmitsSingleProbeAfterCooldown() {
+        failTimes(3);
+        advance(OPEN_DURATION.toMillis() - 1);
+        assertFalse(breaker.tryAcquire());
+
+        advance(1);
+        assertTrue(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    public void successfulProbeCloses() {
+        failTimes(3);
+        advance(OPEN_DURATION.toMillis());
+        assertTrue(breaker.tryAcquire());
+
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    public void failedProbeReopensAndRestartsCooldown() {
+        failTimes(3);
+        advance(OPEN_DURATION.toMillis());
+        assertTrue(breaker.tryAcquire());
+
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        advance(OPEN_DURATION.toMillis() - 1);
+        assertFalse(breaker.tryAcquire());
+        advance(1);
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    public void ignoredProbeReleasesSlot() {
+        failTimes(3);
+        advance(OPEN_DURATION.toMillis());
+        assertTrue(breaker.tryAcquire());
+
+        breaker.onIgnored();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    public void availabilityDoesNotConsumeProbe() {
+        assertTrue(breaker.isAvailable());
+        failTimes(3);
+        assertFalse(breaker.isAvailable());
+
+        advance(OPEN_DURATION.toMillis());
+        assertTrue(breaker.isAvailable());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.isAvailable());
+    }
+
+    private void failTimes(int times) {
+        for (int i = 0; i < times; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onFailure();
+        }
+    }
+
+    private void advance(long millis) {
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+}
@@ -0,0 +1,134 @@
+package com.nju.comment.client;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class LoadBalancerTest {
+
+    private static final Duration OPEN_DURATION = Duration.ofSeconds(30);
+
+    private final AtomicLong now = new AtomicLong();
+    private final Endpoint fast = endpoint("http://fast");
+    private final Endpoint slow = endpoint("http://slow");
+    private final Endpoint idle = endpoint("http://idle");
+
+    @Test
+    public void p2cPicksLowerLatencyEndpoint() {
+        record(fast, 50);
+        record(slow, 500);
+
+        LoadBalancer balancer = p2c(List.of(fast, slow), 0, 1);
+        assertSame(fast, balancer.select());
+        balancer = p2c(List.of(fast, slow), 1, 0);
+        assertSame(fast, balancer.select());
+    }
+
+    @Test
+    public void p2cWeighsOutstandingRequests() {
+        record(fast, 100);
+        record(slow, 150);
+        // 100 × (3 + 1) > 150 × (0 + 1)
+        fast.begin();
+        fast.begin();
+        fast.begin();
+
+        assertSame(slow, p2c(List.of(fast, slow), 0, 1).select());
+    }
+
+    @Test
+    public void p2cSkipsExcludedEndpoint() {
+        record(fast, 50);
+        record(slow, 500);
+        record(idle, 800);
+
+        // 候选只剩 slow 与 idle
+        LoadBalancer balancer = p2c(List.of(fast, slow, idle), 0, 1);
+        assertSame(slow, balancer.select(fast));
+    }
+
+    @Test
+    public void skipsEndpointWithOpenCircuit() {
+        record(fast, 50);
+        record(slow, 500);
+        fast.getCircuitBreaker().onFailure();
+
+        assertSame(slow, p2c(List.of(fast, slow), 0, 1).select());
+        LoadBalancer balancer = new LoadBalancer(List.of(fast, slow), LoadBalancer.Strategy.LEAST_OUTSTANDING,
+                () -> new FixedRandom(0));
+        assertSame(slow, balancer.select());
+    }
+
+    @Test
+    public void endpointBecomesSelectableAfterCooldown() {
+        record(fast, 50);
+        record(slow, 500);
+        fast.getCircuitBreaker().onFailure();
+
+        now.addAndGet(OPEN_DURATION.toNanos());
+        assertSame(fast, p2c(List.of(fast, slow), 0, 1).select());
+    }
+
+    @Test
+    public void fallsBackToOpenEndpointsWhenAllAreOpen() {
+        fast.getCircuitBreaker().onFailure();
+        slow.getCircuitBreaker().onFailure();
+
+        // 仍选出一个实例，由其熔断器在发送时快速失败
+        Endpoint selected = p2c(List.of(fast, slow), 1, 1).select();
+        assertSame(slow, selected);
+        assertFalse(selected.getCircuitBreaker().tryAcquire());
+    }
+
+    @Test
+    public void leastOutstandingPicksIdleEndpoint() {
+        fast.begin();
+        slow.begin();
+
+        LoadBalancer balancer = new LoadBalancer(List.of(fast, slow, idle), LoadBalancer.Strategy.LEAST_OUTSTANDING,
+                () -> new FixedRandom(0));
+        assertSame(idle, balancer.select());
+    }
+
+    @Test
+    public void singleEndpointIgnoresExclude() {
+        LoadBalancer balancer = new LoadBalancer(List.of(fast), LoadBalancer.Strategy.P2C_EWMA);
+        assertSame(fast, balancer.select(fast));
+    }
+
+    private Endpoint endpoint(String baseUrl) {
+        return new Endpoint(baseUrl, 1.0, new CircuitBreaker(1, OPEN_DURATION, now::get));
+    }
+
+    private static void record(Endpoint endpoint, double latencyMillis) {
+        endpoint.begin();
+        endpoint.end(latencyMillis);
+    }
+
+    private static LoadBalancer p2c(List<Endpoint> endpoints, int... picks) {
+        FixedRandom random = new FixedRandom(picks);
+        return new LoadBalancer(endpoints, LoadBalancer.Strategy.P2C_EWMA, () -> random);
+    }
+
+    /**
+     * 按给定顺序返回下标的随机源
+     */
+    private static final class FixedRandom extends Random {
+        private final int[] picks;
+        private int next;
+
+        private FixedRandom(int... picks) {
+            this.picks = picks;
+        }
+
+        @Override
+        public int nextInt(int bound) {
+            return picks[next++ % picks.length] % bound;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.nju.comment.client;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RetryBudgetTest {
+
+    @Test
+    public void startsFull() {
+        RetryBudget budget = new RetryBudget(10, 0.1);
+        assertEquals(10D, budget.getTokens(), 1e-9);
+        assertTrue(budget.canRetry());
+    }
+
+    @Test
+    public void depletesAtHalfCapacity() {
+        RetryBudget budget = new RetryBudget(10, 0.1);
+        for (int i = 0; i < 4; i++) {
+            budget.onFailure();
+        }
+        assertTrue(budget.canRetry());
+
+        budget.onFailure();
+        assertEquals(5D, budget.getTokens(), 1e-9);
+        assertFalse(budget.canRetry());
+    }
+
+    @Test
+    public void tokensNeverDropBelowZero() {
+        RetryBudget budget = new RetryBudget(2, 0.5);
+        for (int i = 0; i < 5; i++) {
+            budget.onFailure();
+        }
+        assertEquals(0D, budget.getTokens(), 1e-9);
+    }
+
+    @Test
+    public void successesRefillUntilRetryAllowed() {
+        RetryBudget budget = new RetryBudget(10, 0.1);
+        for (int i = 0; i < 5; i++) {
+            budget.onFailure();
+        }
+        assertFalse(budget.canRetry());
+
+        budget.onSuccess();
+        assertTrue(budget.canRetry());
+    }
+
+    @Test
+    public void refillIsCappedAtMaxTokens() {
+        RetryBudget budget = new RetryBudget(10, 0.1);
+        budget.onFailure();
+        for (int i = 0; i < 100; i++) {
+            budget.onSuccess();
+        }
+        assertEquals(10D, budget.getTokens(), 1e-9);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveRatio() {
+        new RetryBudget(10, 0);
+    }
+}
@@ -0,0 +1,160 @@
+package com.nju.comment.service;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class CpuBudgetSchedulerTest {
+
+    private static final double BUDGET_CORES = 0.5;
+    private static final long WINDOW_MS = 1000;
+
+    private final AtomicLong wallNanos = new AtomicLong();
+    private final AtomicLong cpuNanos = new AtomicLong();
+    private final Deque<Runnable> dispatched = new ArrayDeque<>();
+    private final List<Timed> timers = new ArrayList<>();
+    private final CpuBudgetScheduler scheduler = new CpuBudgetScheduler(dispatched::add,
+            (task, delayNanos) -> timers.add(new Timed(task, delayNanos)),
+            wallNanos::get, cpuNanos::get, BUDGET_CORES, WINDOW_MS);
+
+    @Test
+    public void dispatchesImmediatelyWithinBudget() {
+        List<String> ran = new ArrayList<>();
+        scheduler.execute(() -> ran.add("a"));
+        scheduler.execute(() -> ran.add("b"));
+
+        assertEquals(2, dispatched.size());
+        runDispatched();
+        assertEquals(List.of("a", "b"), ran);
+        assertTrue(timers.isEmpty());
+    }
+
+    @Test
+    public void defersWorkOnceBudgetIsSpent() {
+        // 一个窗口的预算为 500ms CPU，单个任务用掉 600ms 后令牌透支 100ms
+        scheduler.execute(() -> cpuNanos.addAndGet(millis(600)));
+        runDispatched();
+
+        List<String> ran = new ArrayList<>();
+        scheduler.execute(() -> ran.add("deferred"));
+
+        assertTrue(dispatched.isEmpty());
+        assertEquals(1, timers.size());
+        // 按 0.5 核的补充速率，补回 100ms 欠额需要 200ms 墙钟时间
+        assertEquals(millis(200), timers.getFirst().delayNanos(), 10);
+    }
+
+    @Test
+    public void refillsOverTimeAndDispatchesDeferredWork() {
+        scheduler.execute(() -> cpuNanos.addAndGet(millis(600)));
+        runDispatched();
+        List<String> ran = new ArrayList<>();
+        scheduler.execute(() -> ran.add("deferred"));
+        Timed timed = timers.removeFirst();
+
+        wallNanos.addAndGet(timed.delayNanos());
+        timed.task().run();
+
+        assertEquals(1, dispatched.size());
+        runDispatched();
+        assertEquals(List.of("deferred"), ran);
+    }
+
+    @Test
+    public void timerFiringEarlyReschedulesInsteadOfDispatching() {
+        scheduler.execute(() -> cpuNanos.addAndGet(millis(600)));
+        runDispatched();
+        scheduler.execute(() -> {
+        });
+        Timed timed = timers.removeFirst();
+
+        wallNanos.addAndGet(timed.delayNanos() / 2);
+        timed.task().run();
+
+        assertTrue(dispatched.isEmpty());
+        assertEquals(1, timers.size());
+    }
+
+    @Test
+    public void idleRefillIsCappedAtOneWindow() {
+        wallNanos.addAndGet(TimeUnit.SECONDS.toNanos(60));
+        scheduler.execute(() -> cpuNanos.addAndGet(millis(600)));
+        runDispatched();
+
+        scheduler.execute(() -> {
+        });
+        assertTrue(dispatched.isEmpty());
+        assertEquals(1, timers.size());
+    }
+
+    @Test
+    public void exemptTasksBypassSpentBudget() {
+        scheduler.execute(() -> cpuNanos.addAndGet(millis(600)));
+        runDispatched();
+
+        scheduler.execute(() -> {
+        }, () -> true);
+        assertEquals(1, dispatched.size());
+    }
+
+    @Test
+    public void queuedTaskBecomesExemptWhenPromoted() {
+        scheduler.execute(() -> cpuNanos.addAndGet(millis(600)));
+        runDispatched();
+        AtomicBoolean explicit = new AtomicBoolean();
+        scheduler.execute(() -> {
+        }, explicit::get);
+        assertTrue(dispatched.isEmpty());
+
+        explicit.set(true);
+        scheduler.drain();
+        assertEquals(1, dispatched.size());
+    }
+
+    @Test
+    public void budgetChangeTakesEffectImmediately() {
+        scheduler.execute(() -> cpuNanos.addAndGet(millis(600)));
+        runDispatched();
+        scheduler.execute(() -> {
+        });
+        Timed timed = timers.removeFirst();
+
+        // 预算提高到 2 核后，100ms 欠额只需 50ms 墙钟时间补回
+        scheduler.setBudgetPercent(200);
+        assertEquals(200, scheduler.budgetPercent());
+        wallNanos.addAndGet(millis(50) + 1);
+        timed.task().run();
+        assertEquals(1, dispatched.size());
+    }
+
+    @Test
+    public void reportsUtilizationAgainstBudget() {
+        scheduler.execute(() -> cpuNanos.addAndGet(millis(300)));
+        runDispatched();
+
+        assertEquals(30, scheduler.utilizationPercent());
+        assertEquals(50, scheduler.budgetPercent());
+    }
+
+    private void runDispatched() {
+        Runnable task;
+        while ((task = dispatched.poll()) != null) {
+            task.run();
+        }
+    }
+
+    private static long millis(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    private record Timed(Runnable task, long delayNanos) {
+    }
+}
@@ -0,0 +1,502 @@
+package com.nju.comment.stub;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nju.comment.client.PluginCommentClient;
+import com.nju.comment.dto.request.CommentRequest;
+import com.nju.comment.util.UnifiedDiffUtil;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 基于 JDK HttpServer 的本地注释生成服务桩，实现 /comments/generate、/comments/cancel、/comments/cancel/batch、/comments/models。
+ * <p>
+ * 支持可配置的延迟分布、错误率（HTTP 503 或业务失败）、分块慢速返回响应体，以及取消语义：
+ * 生成过程中收到同 requestId 的取消请求时立即以 cancelled 结果返回。
+ * 可声明 unified-diff 能力，此时按 diff 还原 newMethod，还原失败视为业务失败。
+ * 可解压 gzip 请求体，并在开启响应压缩且客户端声明 Accept-Encoding: gzip 时压缩响应体。
+ * 监听随机端口，并记录收到的各类请求数量，用于在没有真实 LLM 后端时对客户端做负载与回归测试。
+ */
+public final class StubCommentServer implements AutoCloseable {
+
+    public static final String MODEL = "stub-model";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Builder config;
+    private final List<String> capabilities;
+
+    private final Map<String, CountDownLatch> runningGenerations = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> cancelledIds = new ConcurrentHashMap<>();
+
+    private final AtomicLong generateRequests = new AtomicLong();
+    private final AtomicLong cancelRequests = new AtomicLong();
+    private final AtomicLong cancelBatchRequests = new AtomicLong();
+    private final AtomicLong modelsRequests = new AtomicLong();
+    private final AtomicLong cancelledGenerations = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+    private final AtomicLong diffRequests = new AtomicLong();
+    private final AtomicLong diffApplyFailures = new AtomicLong();
+    private final AtomicLong requestBytes = new AtomicLong();
+    private final AtomicLong responseBytes = new AtomicLong();
+    private final AtomicLong gzipRequests = new AtomicLong();
+    private final AtomicLong gzipResponses = new AtomicLong();
+    private final AtomicInteger activeRequests = new AtomicInteger();
+    private final AtomicInteger peakActiveRequests = new AtomicInteger();
+
+    private StubCommentServer(Builder builder) throws IOException {
+        this.config = builder;
+        this.capabilities = builder.effectiveCapabilities();
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", builder.port), 0);
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "stub-comment-server");
+            t.setDaemon(true);
+            return t;
+        });
+        server.createContext("/api/comments/generate", this::handleGenerate);
+        server.createContext("/api/comments/cancel", this::handleCancel);
+        server.createContext("/api/comments/cancel/batch", this::handleCancelBatch);
+        server.createContext("/api/comments/models", this::handleModels);
+        server.setExecutor(executor);
+    }
+
+    /**
+     * 以默认配置（无延迟、无错误）在随机端口上启动服务桩
+     */
+    public static StubCommentServer start() throws IOException {
+        return builder().start();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 供 PluginCommentClient 使用的 baseUrl
+     */
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/api";
+    }
+
+    public long getGenerateRequests() {
+        return generateRequests.get();
+    }
+
+    public long getCancelRequests() {
+        return cancelRequests.get();
+    }
+
+    public long getCancelBatchRequests() {
+        return cancelBatchRequests.get();
+    }
+
+    public long getModelsRequests() {
+        return modelsRequests.get();
+    }
+
+    public long getCancelledGenerations() {
+        return cancelledGenerations.get();
+    }
+
+    public long getInjectedErrors() {
+        return injectedErrors.get();
+    }
+
+    public long getDiffRequests() {
+        return diffRequests.get();
+    }
+
+    public long getDiffApplyFailures() {
+        return diffApplyFailures.get();
+    }
+
+    /**
+     * 累计收到的请求体字节数（线上字节，压缩请求按压缩后计）
+     */
+    public long getRequestBytes() {
+        return requestBytes.get();
+    }
+
+    /**
+     * 累计写出的信封响应体字节数（线上字节，压缩响应按压缩后计）
+     */
+    public long getResponseBytes() {
+        return responseBytes.get();
+    }
+
+    public long getGzipRequests() {
+        return gzipRequests.get();
+    }
+
+    public long getGzipResponses() {
+        return gzipResponses.get();
+    }
+
+    public int getActiveRequests() {
+        return activeRequests.get();
+    }
+
+    public int getPeakActiveRequests() {
+        return peakActiveRequests.get();
+    }
+
+    /**
+     * 清零请求计数，并丢弃尚未匹配到生成请求的取消记录
+     */
+    public void resetCounters() {
+        cancelledIds.clear();
+        generateRequests.set(0);
+        cancelRequests.set(0);
+        cancelBatchRequests.set(0);
+        modelsRequests.set(0);
+        cancelledGenerations.set(0);
+        injectedErrors.set(0);
+        diffRequests.set(0);
+        diffApplyFailures.set(0);
+        requestBytes.set(0);
+        responseBytes.set(0);
+        gzipRequests.set(0);
+        gzipResponses.set(0);
+        peakActiveRequests.set(activeRequests.get());
+    }
+
+    private void handleGenerate(HttpExchange exchange) throws IOException {
+        generateRequests.incrementAndGet();
+        int active = activeRequests.incrementAndGet();
+        peakActiveRequests.accumulateAndGet(active, Math::max);
+        String requestId = null;
+        try {
+            JsonNode request = readJson(exchange);
+            requestId = request.path("clientRequestId").asText("");
+
+            if (maybeInjectError(exchange)) {
+                return;
+            }
+
+            if (CommentRequest.FORMAT_UNIFIED_DIFF.equals(request.path("newMethodFormat").asText(null))) {
+                diffRequests.incrementAndGet();
+                try {
+                    UnifiedDiffUtil.apply(request.path("oldMethod").asText(""), request.path("newMethod").asText(""));
+                } catch (RuntimeException e) {
+                    diffApplyFailures.incrementAndGet();
+                    writeEnvelope(exchange, false, "diff apply failed: " + e.getMessage(), null);
+                    return;
+                }
+            }
+
+            CountDownLatch cancelSignal = new CountDownLatch(1);
+            if (!requestId.isEmpty()) {
+                runningGenerations.put(requestId, cancelSignal);
+                if (cancelledIds.remove(requestId) != null) {
+                    // 取消请求先于生成请求到达
+                    cancelSignal.countDown();
+                }
+            }
+
+            boolean cancelled = cancelSignal.await(config.latency.sampleMillis(), TimeUnit.MILLISECONDS);
+            if (cancelled) {
+                cancelledGenerations.incrementAndGet();
+            }
+
+            Map<String, Object> data = new LinkedHashMap<>();
+            data.put("success", !cancelled);
+            data.put("cancelled", cancelled);
+            data.put("generatedComment", cancelled ? null
+                    : "/**\n * Generated by stub for " + requestId + "\n */");
+            data.put("modelUsed", request.path("modelName").asText(MODEL));
+            data.put("requestId", requestId);
+            data.put("processingTimeMs", 0);
+            writeEnvelope(exchange, true, null, data);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            writeError(exchange, 503, "interrupted");
+        } finally {
+            if (requestId != null) {
+                runningGenerations.remove(requestId);
+            }
+            activeRequests.decrementAndGet();
+        }
+    }
+
+    private void handleCancel(HttpExchange exchange) throws IOException {
+        cancelRequests.incrementAndGet();
+        JsonNode request = readJson(exchange);
+        cancelGeneration(request.path("requestId").asText(""));
+        writeEnvelope(exchange, true, null, null);
+    }
+
+    private void handleCancelBatch(HttpExchange exchange) throws IOException {
+        cancelBatchRequests.incrementAndGet();
+        JsonNode request = readJson(exchange);
+        for (JsonNode id : request.path("requestIds")) {
+            cancelGeneration(id.asText(""));
+        }
+        writeEnvelope(exchange, true, null, null);
+    }
+
+    private void cancelGeneration(String requestId) {
+        CountDownLatch signal = runningGenerations.get(requestId);
+        if (signal != null) {
+            signal.countDown();
+        } else if (!requestId.isEmpty()) {
+            cancelledIds.put(requestId, Boolean.TRUE);
+        }
+    }
+
+    private void handleModels(HttpExchange exchange) throws IOException {
+        modelsRequests.incrementAndGet();
+        readJson(exchange);
+        writeEnvelope(exchange, true, null, config.models, capabilities);
+    }
+
+    /**
+     * 按配置的错误率注入 HTTP 503 或业务失败
+     *
+     * @return 是否已注入错误并写回响应
+     */
+    private boolean maybeInjectError(HttpExchange exchange) throws IOException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextDouble() < config.httpErrorRate) {
+            injectedErrors.incrementAndGet();
+            writeError(exchange, 503, "injected unavailable");
+            return true;
+        }
+        if (random.nextDouble() < config.failureRate) {
+            injectedErrors.incrementAndGet();
+            writeEnvelope(exchange, false, "injected failure", null);
+            return true;
+        }
+        return false;
+    }
+
+    private JsonNode readJson(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readAllBytes();
+            requestBytes.addAndGet(body.length);
+            if (isGzip(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+                gzipRequests.incrementAndGet();
+                try (InputStream gzip = new GZIPInputStream(new ByteArrayInputStream(body))) {
+                    body = gzip.readAllBytes();
+                }
+            }
+            return body.length == 0 ? objectMapper.createObjectNode() : objectMapper.readTree(body);
+        }
+    }
+
+    private void writeError(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private void writeEnvelope(HttpExchange exchange, boolean success, String message, Object data) throws IOException {
+        writeEnvelope(exchange, success, message, data, List.of());
+    }
+
+    private void writeEnvelope(HttpExchange exchange, boolean success, String message, Object data,
+                               List<String> capabilities) throws IOException {
+        Map<String, Object> envelope = new LinkedHashMap<>();
+        envelope.put("success", success);
+        envelope.put("message", message);
+        envelope.put("data", data);
+        if (!capabilities.isEmpty()) {
+            envelope.put("capabilities", capabilities);
+        }
+        byte[] bytes = objectMapper.writeValueAsString(envelope).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (config.gzipResponses && acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip")) {
+            gzipResponses.incrementAndGet();
+            bytes = gzip(bytes);
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        responseBytes.addAndGet(bytes.length);
+
+        if (config.dripChunkBytes <= 0) {
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+            return;
+        }
+
+        // 慢速返回：分块写出，每块之间暂停
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            for (int offset = 0; offset < bytes.length; offset += config.dripChunkBytes) {
+                int len = Math.min(config.dripChunkBytes, bytes.length - offset);
+                out.write(bytes, offset, len);
+                out.flush();
+                Thread.sleep(config.dripInterval.toMillis());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static boolean isGzip(String contentEncoding) {
+        return contentEncoding != null && contentEncoding.trim().equalsIgnoreCase("gzip");
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+            gzip.write(bytes);
+        }
+        return buffer.toByteArray();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * 生成请求的处理延迟分布
+     */
+    @FunctionalInterface
+    public interface LatencyDistribution {
+
+        long sampleMillis();
+
+        static LatencyDistribution none() {
+            return () -> 0L;
+        }
+
+        static LatencyDistribution fixed(Duration latency) {
+            long millis = latency.toMillis();
+            return () -> millis;
+        }
+
+        static LatencyDistribution uniform(Duration min, Duration max) {
+            long lo = min.toMillis();
+            long hi = Math.max(lo + 1, max.toMillis());
+            return () -> ThreadLocalRandom.current().nextLong(lo, hi);
+        }
+
+        /**
+         * 对数正态分布，适合模拟 LLM 推理这类长尾延迟
+         *
+         * @param median 中位数延迟
+         * @param sigma  对数标准差，越大尾部越长
+         */
+        static LatencyDistribution logNormal(Duration median, double sigma) {
+            double mu = Math.log(Math.max(1, median.toMillis()));
+            return () -> Math.round(Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian()));
+        }
+    }
+
+    public static class Builder {
+        private int port = 0;
+        private LatencyDistribution latency = LatencyDistribution.none();
+        private double httpErrorRate = 0D;
+        private double failureRate = 0D;
+        private int dripChunkBytes = 0;
+        private Duration dripInterval = Duration.ZERO;
+        private List<String> models = List.of(MODEL);
+        private List<String> capabilities = List.of();
+        private boolean gzipResponses = false;
+
+        public Builder port(int port) {
+            this.port = port;
+            return this;
+        }
+
+        public Builder latency(LatencyDistribution latency) {
+            this.latency = Objects.requireNonNull(latency);
+            return this;
+        }
+
+        /**
+         * 返回 HTTP 503 的概率
+         */
+        public Builder httpErrorRate(double rate) {
+            this.httpErrorRate = rate;
+            return this;
+        }
+
+        /**
+         * 返回 success=false 业务失败的概率
+         */
+        public Builder failureRate(double rate) {
+            this.failureRate = rate;
+            return this;
+        }
+
+        /**
+         * 慢速返回响应体：每次写出 chunkBytes 字节后暂停 interval
+         */
+        public Builder slowDrip(int chunkBytes, Duration interval) {
+            this.dripChunkBytes = chunkBytes;
+            this.dripInterval = Objects.requireNonNull(interval);
+            return this;
+        }
+
+        public Builder models(List<String> models) {
+            this.models = List.copyOf(models);
+            return this;
+        }
+
+        /**
+         * 在 /comments/models 响应中声明的能力，如 {@link CommentRequest#FORMAT_UNIFIED_DIFF}
+         */
+        public Builder capabilities(List<String> capabilities) {
+            this.capabilities = List.copyOf(capabilities);
+            return this;
+        }
+
+        /**
+         * 接收 gzip 请求体并压缩响应体，同时在能力列表中声明 {@link PluginCommentClient#CAPABILITY_GZIP_REQUEST}
+         */
+        public Builder gzip(boolean enabled) {
+            this.gzipResponses = enabled;
+            return this;
+        }
+
+        /**
+         * 启动时实际声明的能力：开启 gzip 时追加 gzip 能力，与 capabilities/gzip 的调用顺序无关
+         */
+        private List<String> effectiveCapabilities() {
+            if (!gzipResponses || capabilities.contains(PluginCommentClient.CAPABILITY_GZIP_REQUEST)) {
+                return capabilities;
+            }
+            List<String> merged = new ArrayList<>(capabilities);
+            merged.add(PluginCommentClient.CAPABILITY_GZIP_REQUEST);
+            return List.copyOf(merged);
+        }
+
+        public StubCommentServer start() throws IOException {
+            StubCommentServer stub = new StubCommentServer(this);
+            stub.server.start();
+            return stub;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.nju.comment.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class UnifiedDiffUtilTest {
+
+    private static final long MAX_CELLS = 4_000_000L;
+
+    @Test
+    public void identicalTextsProduceEmptyDiff() {
+        String text = "a\nb\nc";
+        assertEquals("", UnifiedDiffUtil.diff(text, text, MAX_CELLS));
+        assertEquals(text, UnifiedDiffUtil.apply(text, ""));
+    }
+
+    @Test
+    public void roundTripFromEmptyOld() {
+        assertRoundTrip("", "public void run() {\n    work();\n}");
+    }
+
+    @Test
+    public void roundTripToEmptyNew() {
+        assertRoundTrip("public void run() {\n    work();\n}", "");
+    }
+
+    @Test
+    public void roundTripPreservesTrailingNewline() {
+        assertRoundTrip("a\nb\nc\n", "a\nB\nc\n");
+        assertRoundTrip("a\nb\nc", "a\nb\nc\n");
+        assertRoundTrip("a\nb\nc\n", "a\nb\nc");
+    }
+
+    @Test
+    public void roundTripWithSeparatedHunks() {
+        List<String> oldLines = numberedLines(40);
+        List<String> newLines = new ArrayList<>(oldLines);
+        newLines.set(2, "changed 2");
+        newLines.remove(20);
+        newLines.add(35, "inserted");
+        String oldText = String.join("\n", oldLines);
+        String newText = String.join("\n", newLines);
+
+        String diff = UnifiedDiffUtil.diff(oldText, newText, MAX_CELLS);
+        assertNotNull(diff);
+        assertEquals(3, countHunks(diff));
+        assertEquals(newText, UnifiedDiffUtil.apply(oldText, diff));
+    }
+
+    @Test
+    public void changesWithinContextWindowShareOneHunk() {
+        List<String> oldLines = numberedLines(20);
+        List<String> newLines = new ArrayList<>(oldLines);
+        newLines.set(8, "changed 8");
+        newLines.set(12, "changed 12");
+        String oldText = String.join("\n", oldLines);
+        String newText = String.join("\n", newLines);
+
+        String diff = UnifiedDiffUtil.diff(oldText, newText, MAX_CELLS);
+        assertNotNull(diff);
+        assertEquals(1, countHunks(diff));
+        assertEquals(newText, UnifiedDiffUtil.apply(oldText, diff));
+    }
+
+    @Test
+    public void diffExceedingCellLimitReturnsNull() {
+        assertNull(UnifiedDiffUtil.diff("a\nb\nc", "x\ny\nz", 4));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void applyRejectsMismatchedBase() {
+        String diff = UnifiedDiffUtil.diff("a\nb\nc", "a\nx\nc", MAX_CELLS);
+        UnifiedDiffUtil.apply("a\ny\nc", diff);
+    }
+
+    private static void assertRoundTrip(String oldText, String newText) {
+        String diff = UnifiedDiffUtil.diff(oldText, newText, MAX_CELLS);
+        assertNotNull(diff);
+        assertEquals(newText, UnifiedDiffUtil.apply(oldText, diff));
+    }
+
+    private static List<String> numberedLines(int count) {
+        List<String> lines = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            lines.add("line " + i);
+        }
+        return lines;
+    }
+
+    private static int countHunks(String diff) {
+        int hunks = 0;
+        for (String line : diff.split("\n")) {
+            if (line.startsWith("@@")) {
+                hunks++;
+            }
+        }
+        return hunks;
+    }
+}